@@ -27,6 +27,9 @@ dependencies {
     // Jackson (ObjectMapper)
     implementation("com.fasterxml.jackson.core:jackson-databind:2.17.1")
 
+    // H2 embarcado (backend JDBC opcional: -Dlivraria.storage=jdbc)
+    implementation("com.h2database:h2:2.2.224")
+
     // --- TESTE ---
 
     // JUnit 5
@@ -43,6 +46,33 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// --- BENCHMARKS (JMH) ---
+// src/jmh/java enxerga as classes de produção; rodar com: ./gradlew jmh
+// (filtro opcional: ./gradlew jmh -PjmhFiltro=Decodificador)
+
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Roda os benchmarks JMH de src/jmh/java."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args(listOfNotNull(project.findProperty("jmhFiltro")?.toString(), "-rf", "json",
+            "-rff", layout.buildDirectory.file("jmh/resultados.json").get().asFile.path))
+    doFirst { layout.buildDirectory.dir("jmh").get().asFile.mkdirs() }
+}
+
 application {
     mainClass.set("com.livraria.Main")
 }
@@ -0,0 +1,123 @@
+package com.livraria.services.relatorio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificação de linhas do log com filtro, como na exportação do relatório:
+ * o parse antigo (split + substrings + LocalDateTime.parse em toda linha, depois
+ * o filtro sobre o Evento) contra o {@link DecodificadorEvento} (filtro sobre os
+ * trechos da linha, Evento só para quem passa).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodificadorEventoBenchmark {
+
+    /** sem = sem filtro (tudo é montado); seletivo = ~1 linha em 20 passa. */
+    @Param({"sem", "seletivo"})
+    public String filtro;
+
+    private String[] linhas;
+    private EventoStore.Filtro f;
+    private final DecodificadorEvento d = new DecodificadorEvento();
+
+    @Setup
+    public void preparar() {
+        var r = new Random(42);
+        String[] clientes = {"Fulano da Silva", "Maria Souza", "José Conceição", "Ana Lima", "Carlos Prado"};
+        String[] livros = {"1984", "Dom Casmurro", "O Alienista", "Iracema", "Memórias Póstumas"};
+        linhas = new String[10_000];
+        var t = LocalDateTime.of(2025, 11, 1, 8, 0);
+        for (int i = 0; i < linhas.length; i++) {
+            t = t.plusSeconds(r.nextInt(600)).plusNanos(r.nextInt(1_000_000) * 1000L);
+            String c = clientes[r.nextInt(clientes.length)], l = livros[r.nextInt(livros.length)];
+            int q = 1 + r.nextInt(3), antes = 5 + r.nextInt(50);
+            linhas[i] = switch (r.nextInt(4)) {
+                case 0 -> t + " - CRIACAO|id=" + i + "|livro=" + l + "|autor=Autor|qtd=" + q + "|preco=19,90";
+                case 1 -> t + " - ATUALIZACAO|id=" + i + "|qtd=" + q;
+                default -> t + " - COMPRA|cliente=" + c + "|livro=" + l + "|qtd=" + q
+                        + "|antes=" + antes + "|depois=" + (antes - q) + "|preco=34,50";
+            };
+        }
+        f = "sem".equals(filtro)
+                ? new EventoStore.Filtro("", "", "", null, null)
+                : new EventoStore.Filtro("compra", "ana", "", LocalDate.of(2025, 11, 2), null);
+    }
+
+    @Benchmark
+    public void antigo(Blackhole bh) {
+        for (String l : linhas) {
+            Evento e = interpretarAntigo(l);
+            if (e != null && f.aceita(e)) bh.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void decodificador(Blackhole bh) {
+        for (String l : linhas) {
+            if (d.decodificar(l) && d.aceita(f)) bh.consume(d.evento());
+        }
+    }
+
+    /** EventoParser.interpretar como era antes do DecodificadorEvento. */
+    private static Evento interpretarAntigo(String line) {
+        int sep = line.indexOf(" - ");
+        if (sep < 0) return null;
+        String tsStr = line.substring(0, sep).trim();
+        String msg = line.substring(sep + 3).trim();
+
+        LocalDateTime ts;
+        try { ts = LocalDateTime.parse(tsStr); } catch (Exception e) { ts = null; }
+
+        String[] parts = msg.split("\\|");
+        if (parts.length == 0) return null;
+        String cliente = "", livro = "", qtd = null, a = null, d = null, preco = null;
+        for (int i = 1; i < parts.length; i++) {
+            String p = parts[i];
+            int eq = p.indexOf('=');
+            if (eq <= 0) continue;
+            String v = p.substring(eq + 1).trim();
+            switch (p.substring(0, eq).trim().toLowerCase(Locale.ROOT)) {
+                case "cliente" -> cliente = v;
+                case "livro" -> livro = v;
+                case "qtd" -> qtd = v;
+                case "antes" -> a = v;
+                case "depois" -> d = v;
+                case "preco" -> preco = v;
+                default -> { }
+            }
+        }
+        boolean temEstoque = a != null && d != null;
+        Double p = null;
+        if (preco != null) {
+            try { p = Double.parseDouble(preco.replace(',', '.')); } catch (Exception e) { p = null; }
+        }
+        return new Evento(ts, parts[0].trim(), cliente, livro, parseInt(qtd),
+                temEstoque ? parseInt(a) : null, temEstoque ? parseInt(d) : null, p, msg);
+    }
+
+    private static int parseInt(String v) {
+        if (v == null) return 0;
+        try { return Integer.parseInt(v.trim()); } catch (Exception e) { return 0; }
+    }
+}
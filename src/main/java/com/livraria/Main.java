@@ -3,6 +3,7 @@ package com.livraria;
 import com.livraria.controllers.ClienteController;
 import com.livraria.controllers.LivroController;
 import com.livraria.controllers.RelatorioController;
+import com.livraria.services.relatorio.EventoStore;
 import com.livraria.shared.utils.Paths;
 import com.livraria.utils.SeedData;
 import io.javalin.Javalin;
@@ -20,6 +21,8 @@ public class Main {
         System.out.println("LIVROS    = " + Paths.LIVROS.toAbsolutePath());
         System.out.println("CLIENTES  = " + Paths.CLIENTES.toAbsolutePath());
         System.out.println("LOG       = " + Paths.LOG.toAbsolutePath());
+        System.out.println("STORAGE   = " + Paths.STORAGE);
+        EventoStore.instancia().carregarEmSegundoPlano(); // relatório em memória
 
         // 2. Cria o app (serve /public do classpath)
         Javalin app = Javalin.create(cfg -> {
@@ -48,6 +51,8 @@ public class Main {
 
         // 5. Rotas - LIVROS
         app.get("/api/livros", livroController::listar);
+        app.get("/api/livros/busca", livroController::buscar);
+        app.get("/api/livros/sugestoes", livroController::sugestoes);
         app.post("/api/livros", livroController::criar);
         app.put("/api/livros/{id}", livroController::atualizar);
         app.delete("/api/livros/{id}", livroController::excluir);
@@ -57,12 +62,16 @@ public class Main {
         app.post("/api/clientes", clienteController::criar);
         app.put("/api/clientes/{id}", clienteController::atualizar);
         app.delete("/api/clientes/{id}", clienteController::excluir);
+        app.get("/api/clientes/{id}/compras", clienteController::compras);
 
         // 7. Rotas - COMPRAS
         app.post("/api/compras", livroController::comprar);
+        app.post("/api/compras/lote", livroController::comprarLote);
 
         // 8. Rotas - RELATÓRIO
         app.get("/api/relatorio", relatorioController::listar);
+        app.get("/api/relatorio/export", relatorioController::exportar);
+        app.get("/api/relatorio/ranking", relatorioController::ranking);
 
         // 9. Front
         app.get("/", ctx -> ctx.redirect("/index.html"));
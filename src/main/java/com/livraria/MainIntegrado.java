@@ -3,6 +3,7 @@ package com.livraria;
 import com.livraria.controllers.ClienteController;
 import com.livraria.controllers.LivroController;
 import com.livraria.controllers.RelatorioController;
+import com.livraria.services.relatorio.EventoStore;
 import com.livraria.shared.utils.Paths;
 import com.livraria.utils.SeedData;
 
@@ -32,6 +33,8 @@ public class MainIntegrado {
         System.out.println("LIVROS    = " + Paths.LIVROS.toAbsolutePath());
         System.out.println("CLIENTES  = " + Paths.CLIENTES.toAbsolutePath());
         System.out.println("LOG       = " + Paths.LOG.toAbsolutePath());
+        System.out.println("STORAGE   = " + Paths.STORAGE);
+        EventoStore.instancia().carregarEmSegundoPlano(); // relatório em memória
 
         // ==== INICIALIZA O CSV DE TICKETS DO SUPORTE ====
         com.livraria.support.utils.SeedData.ensureTicketsCsvExists();
@@ -103,6 +106,8 @@ public class MainIntegrado {
 
         // ==== ROTAS DA LIVRARIA ====
         app.get("/api/livros", livroController::listar);
+        app.get("/api/livros/busca", livroController::buscar);
+        app.get("/api/livros/sugestoes", livroController::sugestoes);
         app.post("/api/livros", livroController::criar);
         app.put("/api/livros/{id}", livroController::atualizar);
         app.delete("/api/livros/{id}", livroController::excluir);
@@ -111,9 +116,13 @@ public class MainIntegrado {
         app.post("/api/clientes", clienteController::criar);
         app.put("/api/clientes/{id}", clienteController::atualizar);
         app.delete("/api/clientes/{id}", clienteController::excluir);
+        app.get("/api/clientes/{id}/compras", clienteController::compras);
 
         app.post("/api/compras", livroController::comprar);
+        app.post("/api/compras/lote", livroController::comprarLote);
         app.get("/api/relatorio", relatorioController::listar);
+        app.get("/api/relatorio/export", relatorioController::exportar);
+        app.get("/api/relatorio/ranking", relatorioController::ranking);
 
         // ==== ROTAS DO SUPORTE ====
         app.get("/api/tickets", ticketController::listar);
@@ -2,11 +2,22 @@ package com.livraria.controllers;
 
 import com.livraria.models.Cliente;
 import com.livraria.services.ClienteService;
+import com.livraria.services.RelatorioService;
+import com.livraria.services.relatorio.Evento;
 import io.javalin.http.Context;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class ClienteController {
 
     private final ClienteService service = new ClienteService();
+    private final RelatorioService relatorio = new RelatorioService();
 
     public void listar(Context ctx) {
         ctx.json(service.listar());
@@ -43,6 +54,44 @@ public class ClienteController {
         ctx.status(204);
     }
 
+    /** Histórico de compras do cliente (pelo nome dele nos COMPRA do log). */
+    public void compras(Context ctx) {
+        int id = Integer.parseInt(ctx.pathParam("id"));
+        var cliente = service.buscar(id);
+
+        List<Evento> compras;
+        try {
+            compras = relatorio.comprasDoCliente(cliente.getNome());
+        } catch (IOException | UncheckedIOException e) {
+            ctx.status(500).json(Map.of("error", "Falha ao ler log: " + e.getMessage()));
+            return;
+        }
+
+        var fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        var linhas = new ArrayList<Map<String, Object>>(compras.size());
+        long itens = 0;
+        double receita = 0;
+        for (var c : compras) {
+            var row = new LinkedHashMap<String, Object>();
+            row.put("timestamp", c.timestamp() == null ? "" : c.timestamp().format(fmt));
+            row.put("livro", c.livro());
+            row.put("quantidade", c.quantidade());
+            row.put("preco", c.preco());
+            linhas.add(row);
+            itens += c.quantidade();
+            receita += c.receita();
+        }
+
+        var resp = new LinkedHashMap<String, Object>();
+        resp.put("cliente", Map.of("id", cliente.getId(), "nome", cliente.getNome()));
+        resp.put("compras", linhas);
+        resp.put("totais", Map.of(
+                "compras", linhas.size(),
+                "itens", itens,
+                "receita", Math.round(receita * 100) / 100.0));
+        ctx.json(resp);
+    }
+
     private static String safe(String s) { return s == null ? "" : s.trim(); }
 
     // DTO esperado no JSON do front: (nome e email)
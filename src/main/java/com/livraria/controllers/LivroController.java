@@ -1,18 +1,26 @@
 package com.livraria.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.livraria.models.ItemCompra;
 import com.livraria.models.Livro;
+import com.livraria.services.CatalogoOrdenado;
 import com.livraria.services.LivroService;
+import com.livraria.services.TituloAmbiguoException;
 import io.javalin.http.Context;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class LivroController {
 
-    private final LivroService service = new LivroService();
+    private final LivroService service = LivroService.instancia();
     private final ObjectMapper om = new ObjectMapper();
 
+    private static final List<String> PARAMS_PAGINACAO =
+            List.of("page", "size", "sort", "precoMin", "precoMax", "emEstoque");
+
     // DTO (Data Transfer Object)
     public static class LivroDTO {
         public String titulo;
@@ -24,11 +32,64 @@ public class LivroController {
         public String titulo;
         public String cliente;
         public Integer quantidade;
+        public Boolean aproximado; // aceita título com erro de digitação (ver LivroService.comprar)
+    }
+    public static class CompraLoteDTO {
+        public String cliente;
+        public List<ItemDTO> itens;
+    }
+    public static class ItemDTO {
+        public String titulo;
+        public Integer quantidade;
     }
 
+    /**
+     * GET /api/livros: sem parâmetros, o catálogo inteiro (array).
+     * Com page/size/sort/precoMin/precoMax/emEstoque, uma página:
+     * {"dados": [...], "paginacao": {page, size, total, hasNext}}.
+     */
     public void listar(Context ctx) {
-        List<Livro> livros = service.listar();
-        ctx.json(livros);
+        if (PARAMS_PAGINACAO.stream().noneMatch(p -> ctx.queryParam(p) != null)) {
+            List<Livro> livros = service.listar();
+            ctx.json(livros);
+            return;
+        }
+        int page = Math.max(1, parseInt(ctx.queryParam("page"), 1));
+        int size = Math.max(1, Math.min(200, parseInt(ctx.queryParam("size"), 50)));
+        CatalogoOrdenado.Pagina r;
+        try {
+            var filtro = new CatalogoOrdenado.Filtro(parsePreco(ctx.queryParam("precoMin")),
+                    parsePreco(ctx.queryParam("precoMax")), "true".equalsIgnoreCase(ctx.queryParam("emEstoque")));
+            r = service.pagina(ctx.queryParam("sort"), filtro, page, size);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+            return;
+        }
+        var paginacao = new LinkedHashMap<String, Object>();
+        paginacao.put("page", page);
+        paginacao.put("size", size);
+        paginacao.put("total", r.total());
+        paginacao.put("hasNext", r.hasNext());
+        var resp = new LinkedHashMap<String, Object>();
+        resp.put("dados", r.livros());
+        resp.put("paginacao", paginacao);
+        ctx.json(resp);
+    }
+
+    /** GET /api/livros/busca?q=...&limite=20 */
+    public void buscar(Context ctx) {
+        int limite = Math.max(1, Math.min(100, parseInt(ctx.queryParam("limite"), 20)));
+        try {
+            ctx.json(service.buscar(nvl(ctx.queryParam("q")), limite));
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** GET /api/livros/sugestoes?prefixo=...&limite=10 (autocompletar do formulário de compra) */
+    public void sugestoes(Context ctx) {
+        int limite = Math.max(1, Math.min(20, parseInt(ctx.queryParam("limite"), 10)));
+        ctx.json(service.sugerir(nvl(ctx.queryParam("prefixo")), limite));
     }
 
     public void criar(Context ctx) {
@@ -84,9 +145,32 @@ public class LivroController {
             service.comprar(
                     nvl(dto.titulo).trim(),
                     nvl(dto.cliente).trim(),
-                    dto.quantidade == null ? 1 : dto.quantidade
+                    dto.quantidade == null ? 1 : dto.quantidade,
+                    Boolean.TRUE.equals(dto.aproximado) || "true".equalsIgnoreCase(ctx.queryParam("aproximado"))
             );
             ctx.status(201).json(Map.of("ok", true));
+        } catch (TituloAmbiguoException ae) {
+            ctx.status(409).json(Map.of("error", ae.getMessage(), "candidatos", ae.getCandidatos()));
+        } catch (RuntimeException re) {
+            ctx.status(400).json(Map.of("error", re.getMessage()));
+        } catch (Exception e) {
+            ctx.status(400).json(Map.of("error", "Entrada inválida: " + e.getMessage()));
+        }
+    }
+
+    /** Carrinho: {"cliente": "...", "itens": [{"titulo": "...", "quantidade": 2}, ...]} */
+    public void comprarLote(Context ctx) {
+        try {
+            CompraLoteDTO dto = om.readValue(ctx.body(), CompraLoteDTO.class);
+            var itens = new ArrayList<ItemCompra>();
+            if (dto.itens != null) {
+                for (ItemDTO i : dto.itens) {
+                    if (i == null) continue;
+                    itens.add(new ItemCompra(nvl(i.titulo).trim(), i.quantidade == null ? 1 : i.quantidade));
+                }
+            }
+            service.comprarLote(nvl(dto.cliente).trim(), itens);
+            ctx.status(201).json(Map.of("ok", true, "itens", itens.size()));
         } catch (RuntimeException re) {
             ctx.status(400).json(Map.of("error", re.getMessage()));
         } catch (Exception e) {
@@ -96,6 +180,21 @@ public class LivroController {
 
     // ---------- helpers ----------
     private static String nvl(String s) { return s == null ? "" : s; }
+    private static int parseInt(String v, int def) {
+        try { return Integer.parseInt(nvl(v).trim()); } catch (NumberFormatException e) { return def; }
+    }
+    /** Preço opcional do filtro: vazio = sem limite. */
+    private static Double parsePreco(String raw) {
+        if (nvl(raw).isBlank()) return null;
+        double v;
+        try {
+            v = parseDoubleFlex(raw);
+        } catch (NumberFormatException e) {
+            v = Double.NaN;
+        }
+        if (!Double.isFinite(v)) throw new IllegalArgumentException("Preço inválido: " + raw);
+        return v;
+    }
     private static double parseDoubleFlex(String raw) {
         if (raw == null) return 0.0;
         return Double.parseDouble(raw.trim().replace(",", "."));
@@ -126,6 +225,7 @@ public class LivroController {
         dto.cliente = ctx.formParam("cliente");
         String q = ctx.formParam("quantidade");
         dto.quantidade = (q == null || q.isBlank()) ? 1 : Integer.parseInt(q);
+        dto.aproximado = "true".equalsIgnoreCase(ctx.formParam("aproximado"));
         return dto;
     }
 }
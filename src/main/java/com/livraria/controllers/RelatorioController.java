@@ -1,11 +1,13 @@
 package com.livraria.controllers;
 
-import com.livraria.shared.utils.Paths;
+import com.livraria.services.RelatorioService;
+import com.livraria.services.relatorio.EventoStore;
+import com.livraria.services.relatorio.ExportadorRelatorio;
+import com.livraria.services.relatorio.RankingVendas;
 import io.javalin.http.Context;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -14,6 +16,8 @@ import java.util.*;
 
 public class RelatorioController {
 
+    private final RelatorioService service = new RelatorioService();
+
     // ----------------- helpers null-safe -----------------
     private static String s(String v) { return v == null ? "" : v; }
 
@@ -42,85 +46,119 @@ public class RelatorioController {
         String livro   = s(ctx.queryParam("livro")).trim().toLowerCase();
         LocalDate de   = parseDate(ctx.queryParam("de"));
         LocalDate ate  = parseDate(ctx.queryParam("ate"));
+        String cursor  = s(ctx.queryParam("cursor")).trim(); // opaco, vem de paginacao.nextCursor
 
-        var eventos = new ArrayList<Map<String, Object>>();
-
-        try (var lines = Files.lines(Paths.LOG, StandardCharsets.UTF_8)) {
-            lines.forEach(line -> {
-                if (line == null || line.isBlank()) return;
-
-                // split "timestamp - message"
-                int sep = line.indexOf(" - ");
-                if (sep < 0) return;
-                String tsStr = line.substring(0, sep).trim();
-                String msg   = line.substring(sep + 3).trim();
-
-                // timestamp
-                LocalDateTime ts;
-                try { ts = LocalDateTime.parse(tsStr); } catch (Exception e) { ts = null; }
-
-                // mensagem -> tipo + pares chave=valor
-                String[] parts = msg.split("\\|");
-                if (parts.length == 0) return;
-                String t = parts[0].trim(); // COMPRA, CRIACAO, ATUALIZACAO, EXCLUSAO, BLOQUEADA...
-                var kv = new HashMap<String, String>();
-                for (int i = 1; i < parts.length; i++) {
-                    String p = parts[i];
-                    int eq = p.indexOf('=');
-                    if (eq > 0) {
-                        String k = p.substring(0, eq).trim().toLowerCase();
-                        String v = p.substring(eq + 1).trim();
-                        kv.put(k, v);
-                    }
-                }
-
-                // filtros
-                if (de  != null && ts != null && ts.toLocalDate().isBefore(de))   return;
-                if (ate != null && ts != null && ts.toLocalDate().isAfter(ate))    return;
-                if (!tipo.isEmpty() && !t.equalsIgnoreCase(tipo))                  return;
-                if (!cliente.isEmpty() && !s(kv.get("cliente")).toLowerCase().contains(cliente)) return;
-                if (!livro.isEmpty()   && !s(kv.get("livro")).toLowerCase().contains(livro))     return;
-
-                // monta linha
-                var row = new LinkedHashMap<String, Object>();
-                row.put("timestamp", fmtTs(ts));
-                row.put("tipo", t);
-                row.put("cliente", s(kv.get("cliente")));
-                row.put("livro", s(kv.get("livro")));
-                row.put("quantidade", parseInt(kv.get("qtd"), 0));
-
-                if (kv.containsKey("antes") && kv.containsKey("depois")) {
-                    row.put("estoqueAntes", parseInt(kv.get("antes"), 0));
-                    row.put("estoqueDepois", parseInt(kv.get("depois"), 0));
-                } else {
-                    row.put("estoqueAntes", null);
-                    row.put("estoqueDepois", null);
-                }
-                row.put("mensagem", msg);
-
-                eventos.add(row);
-            });
-        } catch (IOException e) {
+        EventoStore.Resultado r;
+        try {
+            r = service.listar(new EventoStore.Filtro(tipo, cliente, livro, de, ate), page, size,
+                    cursor.isEmpty() ? null : cursor);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+            return;
+        } catch (IOException | UncheckedIOException e) {
             ctx.status(500).json(Map.of("error", "Falha ao ler log: " + e.getMessage()));
             return;
         }
 
-        // totais (soma de itens vendidos em eventos COMPRA)
-        long itensVendidos = eventos.stream()
-                .filter(m -> "COMPRA".equals(m.get("tipo")))
-                .mapToLong(m -> ((Number) m.getOrDefault("quantidade", 0)).longValue())
-                .sum();
-
-        // paginacaoo
-        int from = Math.max(0, (page - 1) * size);
-        int to   = Math.min(eventos.size(), from + size);
-        var pageData = from >= to ? List.<Map<String, Object>>of() : eventos.subList(from, to);
+        var pageData = new ArrayList<Map<String, Object>>(r.pagina().size());
+        for (var ev : r.pagina()) {
+            var row = new LinkedHashMap<String, Object>();
+            row.put("timestamp", fmtTs(ev.timestamp()));
+            row.put("tipo", ev.tipo());
+            row.put("cliente", ev.cliente());
+            row.put("livro", ev.livro());
+            row.put("quantidade", ev.quantidade());
+            row.put("estoqueAntes", ev.estoqueAntes());
+            row.put("estoqueDepois", ev.estoqueDepois());
+            row.put("mensagem", ev.mensagem());
+            pageData.add(row);
+        }
 
         var resp = new LinkedHashMap<String, Object>();
         resp.put("dados", pageData);
-        resp.put("totais", Map.of("linhas", eventos.size(), "itensVendidos", itensVendidos));
-        resp.put("paginacao", Map.of("page", page, "size", size, "hasNext", to < eventos.size()));
+        // com cursor + filtro de texto os totais exigiriam varrer o log todo: vêm nulos
+        resp.put("totais", r.totais() == null ? null : Map.of(
+                "linhas", r.totais().eventos(),
+                "itensVendidos", r.totais().itens(),
+                "clientesUnicos", r.totais().clientesUnicos(),
+                "receita", Math.round(r.totais().receita() * 100) / 100.0));
+
+        var paginacao = new LinkedHashMap<String, Object>();
+        if (cursor.isEmpty()) paginacao.put("page", page);
+        else paginacao.put("cursor", cursor);
+        paginacao.put("size", size);
+        paginacao.put("hasNext", r.hasNext());
+        paginacao.put("nextCursor", r.proximoCursor());
+        resp.put("paginacao", paginacao);
 
         ctx.json(resp);
     }
+
+    // ----------------- ranking ----------
+    public void ranking(Context ctx) {
+        RankingVendas.Criterio criterio;
+        try {
+            criterio = RankingVendas.Criterio.de(ctx.queryParam("por"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+            return;
+        }
+        int top = Math.max(1, Math.min(100, parseInt(ctx.queryParam("top"), 10)));
+        LocalDate de  = parseDate(ctx.queryParam("de"));
+        LocalDate ate = parseDate(ctx.queryParam("ate"));
+
+        List<RankingVendas.Item> itens;
+        try {
+            itens = service.ranking(criterio, top, de, ate);
+        } catch (IOException | UncheckedIOException e) {
+            ctx.status(500).json(Map.of("error", "Falha ao ler log: " + e.getMessage()));
+            return;
+        }
+
+        var linhas = new ArrayList<Map<String, Object>>(itens.size());
+        for (var it : itens) {
+            var row = new LinkedHashMap<String, Object>();
+            row.put("posicao", linhas.size() + 1);
+            row.put("livro", it.livro());
+            row.put("unidades", it.unidades());
+            row.put("receita", Math.round(it.receita() * 100) / 100.0);
+            row.put("precoAtual", it.precoAtual());
+            linhas.add(row);
+        }
+
+        var resp = new LinkedHashMap<String, Object>();
+        resp.put("por", criterio.name().toLowerCase());
+        resp.put("de", de == null ? null : de.toString());
+        resp.put("ate", ate == null ? null : ate.toString());
+        resp.put("top", top);
+        resp.put("itens", linhas);
+        ctx.json(resp);
+    }
+
+    // ----------------- exportação ----------
+    public void exportar(Context ctx) {
+        ExportadorRelatorio.Formato formato;
+        try {
+            formato = ExportadorRelatorio.Formato.de(s(ctx.queryParam("format")));
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("error", e.getMessage()));
+            return;
+        }
+        var filtro = new EventoStore.Filtro(
+                s(ctx.queryParam("tipo")).trim().toUpperCase(),
+                s(ctx.queryParam("cliente")).trim().toLowerCase(),
+                s(ctx.queryParam("livro")).trim().toLowerCase(),
+                parseDate(ctx.queryParam("de")),
+                parseDate(ctx.queryParam("ate")));
+
+        ctx.contentType(formato.contentType);
+        ctx.header("Content-Disposition", "attachment; filename=\"relatorio." + formato.extensao + "\"");
+        try {
+            // escreve direto na resposta (chunked): nada é montado em memória
+            service.exportar(filtro, formato, ctx.outputStream());
+        } catch (IOException | UncheckedIOException e) {
+            // a resposta já começou: não dá mais para trocar o status
+            System.err.println("Exportação interrompida: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,6 @@
+package com.livraria.models;
+
+/**
+ * Uma linha do carrinho: título do livro e quantidade pedida.
+ */
+public record ItemCompra(String titulo, int quantidade) {}
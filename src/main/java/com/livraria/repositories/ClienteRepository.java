@@ -9,4 +9,13 @@ public interface ClienteRepository {
     List<Cliente> listar();
     void salvarTodos(List<Cliente> clientes);
     Optional<Cliente> buscarPorId(int id);
+
+    /** Insere atribuindo o próximo id livre (o id recebido é ignorado). */
+    Cliente inserir(Cliente novo);
+
+    /** Substitui o cliente de mesmo id. Retorna false se o id não existir. */
+    boolean atualizar(Cliente cliente);
+
+    /** Remove pelo id. Retorna false se o id não existir. */
+    boolean excluir(int id);
 }
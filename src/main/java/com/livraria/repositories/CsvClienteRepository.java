@@ -1,12 +1,11 @@
 package com.livraria.repositories;
 
 import com.livraria.models.Cliente;
+import com.livraria.shared.utils.DurableWriter;
 import com.livraria.shared.utils.Paths;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
@@ -39,22 +38,50 @@ public class CsvClienteRepository implements ClienteRepository {
 
     @Override
     public void salvarTodos(List<Cliente> clientes) {
-        try (BufferedWriter bw = Files.newBufferedWriter(Paths.CLIENTES, StandardCharsets.UTF_8);
-             PrintWriter pw = new PrintWriter(bw)) {
-
-            pw.println("id,nome,email");
-            for (var c : clientes) {
-                String nome  = c.getNome()  == null ? "" : c.getNome().trim();
-                String email = c.getEmail() == null ? "" : c.getEmail().trim();
-                pw.printf("%d,%s,%s%n", c.getId(), nome, email);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Erro escrevendo clientes.csv", e);
+        var linhas = new ArrayList<String>(clientes.size() + 1);
+        linhas.add("id,nome,email");
+        for (var c : clientes) {
+            String nome  = c.getNome()  == null ? "" : c.getNome().trim();
+            String email = c.getEmail() == null ? "" : c.getEmail().trim();
+            linhas.add(String.format("%d,%s,%s", c.getId(), nome, email));
         }
+        // escrita atômica (tmp + fsync + rename), agrupada com outras na mesma janela
+        DurableWriter.instancia().gravar(Paths.CLIENTES, linhas);
     }
 
     @Override
     public Optional<Cliente> buscarPorId(int id) {
         return listar().stream().filter(c -> c.getId() == id).findFirst();
     }
+
+    @Override
+    public synchronized Cliente inserir(Cliente novo) {
+        var todos = listar();
+        int nextId = todos.stream().mapToInt(Cliente::getId).max().orElse(0) + 1;
+        var cliente = new Cliente(nextId, novo.getNome(), novo.getEmail());
+        todos.add(cliente);
+        salvarTodos(todos);
+        return cliente;
+    }
+
+    @Override
+    public synchronized boolean atualizar(Cliente cliente) {
+        var todos = listar();
+        for (int i = 0; i < todos.size(); i++) {
+            if (todos.get(i).getId() == cliente.getId()) {
+                todos.set(i, cliente);
+                salvarTodos(todos);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean excluir(int id) {
+        var todos = listar();
+        if (!todos.removeIf(c -> c.getId() == id)) return false;
+        salvarTodos(todos);
+        return true;
+    }
 }
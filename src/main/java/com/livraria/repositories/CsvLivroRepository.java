@@ -1,24 +1,216 @@
 package com.livraria.repositories;
 
 import com.livraria.models.Livro;
+import com.livraria.shared.utils.DurableWriter;
 import com.livraria.shared.utils.Paths;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-public class CsvLivroRepository {
+/**
+ * Catálogo residente: o livros.csv é lido uma única vez (na construção) e
+ * todas as leituras são servidas da memória, indexadas por id.
+ * As mutações atualizam a memória e gravam o arquivo em seguida (write-through),
+ * pelo {@link DurableWriter}: mutações concorrentes são agrupadas numa única gravação atômica.
+ * <p>
+ * Com -Dlivraria.livros.journal=true a gravação muda: cada mutação só anexa um
+ * registro em livros.journal (ver {@link LivroJournal}) e volta depois do fsync dele,
+ * agrupado com o das mutações concorrentes; uma thread de fundo
+ * compacta periodicamente o journal num livros.csv novo. Na subida o estado é
+ * sempre snapshot + replay do journal.
+ */
+public class CsvLivroRepository implements LivroRepository {
 
+    // índice principal (id -> livro); ordenado por id, que é a ordem gravada no CSV
+    private final NavigableMap<Integer, Livro> porId = new ConcurrentSkipListMap<>();
+    // índice secundário por título / título+autor normalizados
+    private final IndiceTitulos indice = new IndiceTitulos();
+
+    private final LivroJournal journal = new LivroJournal(Paths.LIVROS_JOURNAL);
+    private final boolean modoJournal;
+
+    public CsvLivroRepository() {
+        this(Paths.LIVROS_JOURNAL_ATIVO);
+    }
+
+    public CsvLivroRepository(boolean modoJournal) {
+        this.modoJournal = modoJournal;
+        carregar();
+        reaplicarJournal();
+
+        if (modoJournal) {
+            iniciarCompactacao(Paths.LIVROS_JOURNAL_COMPACTACAO_SEG);
+        } else if (journal.pendentes() > 0) {
+            // sobrou journal de uma execução anterior em modo journal: consolida no CSV
+            compactar();
+        }
+    }
+
+    @Override
     public List<Livro> listar() {
+        return new ArrayList<>(porId.values());
+    }
+
+    @Override
+    public void salvarTodos(List<Livro> livros) {
+        synchronized (this) {
+            // troca o conteúdo sem esvaziar o mapa no meio (um snapshot concorrente nunca sai vazio)
+            var novos = new HashSet<Integer>();
+            for (var l : livros) {
+                colocar(l);
+                novos.add(l.getId());
+            }
+            for (var l : listar()) {
+                if (!novos.contains(l.getId())) remover(l.getId());
+            }
+            if (modoJournal) {
+                DurableWriter.instancia().gravar(Paths.LIVROS, this::linhasCsv);
+                journal.truncar(); // o snapshot acabou de ser gravado por inteiro
+                return;
+            }
+        }
+        persistir();
+    }
+
+    @Override
+    public Optional<Livro> buscarPorId(int id) {
+        return Optional.ofNullable(porId.get(id));
+    }
+
+    /** Busca por título (case-insensitive e trim). */
+    @Override
+    public Optional<Livro> buscarPorTitulo(String titulo) {
+        return indice.idPorTitulo(titulo).map(porId::get);
+    }
+
+    /** Busca por TÍTULO + AUTHOR (case-insensitive, trim ,e colapso de espacos). */
+    @Override
+    public Optional<Livro> buscarPorTituloAutor(String titulo, String autor) {
+        return indice.idPorTituloAutor(titulo, autor).map(porId::get);
+    }
+
+    /** Insere um livro novo atribuindo o próximo id livre (o id recebido é ignorado). */
+    @Override
+    public Livro inserir(Livro novo) {
+        Livro livro;
+        long registro = 0;
+        synchronized (this) {
+            int nextId = porId.isEmpty() ? 1 : porId.lastKey() + 1;
+            livro = new Livro(nextId, novo.getTitulo(), novo.getAutor(), novo.getQuantidade(), novo.getPreco());
+            colocar(livro);
+            if (modoJournal) registro = journal.anexarCriacao(livro);
+        }
+        gravar(registro);
+        return livro;
+    }
+
+    /** Substitui o livro de mesmo id. Retorna false se o id não existir. */
+    @Override
+    public boolean atualizar(Livro livro) {
+        long registro = 0;
+        synchronized (this) {
+            Livro anterior = porId.get(livro.getId());
+            if (anterior == null) return false;
+            colocar(livro);
+            if (modoJournal) registro = anexarMudanca(anterior, livro);
+        }
+        gravar(registro);
+        return true;
+    }
+
+    /**
+     * Substitui vários livros de uma vez, com uma única gravação do catálogo.
+     * Tudo ou nada: se algum id não existir, nada é alterado e retorna false.
+     */
+    @Override
+    public boolean atualizarTodos(Collection<Livro> livros) {
+        long registro = 0;
+        synchronized (this) {
+            for (var l : livros) {
+                if (!porId.containsKey(l.getId())) return false;
+            }
+            for (var l : livros) {
+                Livro anterior = porId.get(l.getId());
+                colocar(l);
+                if (modoJournal) registro = anexarMudanca(anterior, l); // o fsync do último cobre os anteriores
+            }
+        }
+        gravar(registro);
+        return true;
+    }
+
+    /** Remove o livro pelo id. Retorna false se o id não existir. */
+    @Override
+    public boolean excluir(int id) {
+        long registro = 0;
+        synchronized (this) {
+            if (!remover(id)) return false;
+            if (modoJournal) registro = journal.anexarExclusao(id);
+        }
+        gravar(registro);
+        return true;
+    }
+
+    /**
+     * Consolida o journal num livros.csv novo e o esvazia.
+     * Roda na thread de compactação, mas pode ser chamado à mão (ex.: antes de um backup).
+     */
+    public synchronized void compactar() {
+        if (journal.pendentes() == 0) return;
+        // o snapshot é lido sem o lock do repositório, então dá para esperar o flush aqui dentro
+        DurableWriter.instancia().gravar(Paths.LIVROS, this::linhasCsv);
+        journal.truncar();
+    }
+
+    /** Põe o livro no mapa principal e mantém o índice secundário em dia. */
+    private void colocar(Livro livro) {
+        Livro anterior = porId.put(livro.getId(), livro);
+        if (anterior != null) indice.trocar(anterior, livro);
+        else indice.adicionar(livro);
+    }
+
+    private boolean remover(int id) {
+        Livro removido = porId.remove(id);
+        if (removido == null) return false;
+        indice.remover(removido);
+        return true;
+    }
+
+    private static boolean soEstoqueMudou(Livro antes, Livro depois) {
+        return antes.getPreco() == depois.getPreco()
+                && Objects.equals(antes.getTitulo(), depois.getTitulo())
+                && Objects.equals(antes.getAutor(), depois.getAutor());
+    }
+
+    // --- persistência
+
+    private void carregar() {
+        for (var l : lerCsv(Paths.LIVROS)) {
+            colocar(l);
+        }
+    }
+
+    /** Lê um livros.csv; arquivo inexistente = catálogo vazio. Usado também na importação de outros backends. */
+    static List<Livro> lerCsv(Path arquivo) {
         var lista = new ArrayList<Livro>();
-        try (BufferedReader br = Files.newBufferedReader(Paths.LIVROS, StandardCharsets.UTF_8)) {
+        if (!Files.exists(arquivo)) return lista; // catálogo vazio; o arquivo nasce na 1a gravação
+
+        try (BufferedReader br = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
             String line = br.readLine(); // cabeçalho
             while ((line = br.readLine()) != null) {
                 if (line.isBlank()) continue;
@@ -39,47 +231,75 @@ public class CsvLivroRepository {
         return lista;
     }
 
-    public void salvarTodos(List<Livro> livros) {
-        try (BufferedWriter bw = Files.newBufferedWriter(Paths.LIVROS, StandardCharsets.UTF_8);
-             PrintWriter pw = new PrintWriter(bw)) {
-
-            pw.println("id,titulo,autor,quantidade,preco");
-            for (var l : livros) {
-                String titulo = l.getTitulo() == null ? "" : l.getTitulo().trim();
-                String autor  = l.getAutor()  == null ? "" : l.getAutor().trim();
-                // ponto como separador decimal
-                pw.printf(Locale.US, "%d,%s,%s,%d,%.2f%n",
-                        l.getId(), titulo, autor, l.getQuantidade(), l.getPreco());
+    private void reaplicarJournal() {
+        for (var r : journal.ler()) {
+            switch (r.tipo()) {
+                case 'C', 'U' -> colocar(r.livro());
+                case 'E' -> {
+                    Livro atual = porId.get(r.id());
+                    if (atual != null) colocar(atual.withQuantidade(r.depois()));
+                }
+                case 'D' -> remover(r.id());
+                default -> { }
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Erro escrevendo livros.csv", e);
         }
     }
 
-    public Optional<Livro> buscarPorId(int id) {
-        return listar().stream().filter(l -> l.getId() == id).findFirst();
+    private void iniciarCompactacao(long intervaloSeg) {
+        ScheduledExecutorService compactador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "livros-journal-compactacao");
+            t.setDaemon(true);
+            return t;
+        });
+        compactador.scheduleWithFixedDelay(() -> {
+            try {
+                compactar();
+            } catch (RuntimeException e) {
+                // não derruba o agendamento; o journal continua valendo até a próxima tentativa
+                System.err.println("Falha compactando livros.journal: " + e.getMessage());
+            }
+        }, intervaloSeg, intervaloSeg, TimeUnit.SECONDS);
     }
 
-    /** Busca por título (case-insensitive e trim). */
-    public Optional<Livro> buscarPorTitulo(String titulo) {
-        String alvo = norm(titulo);
-        return listar().stream()
-                .filter(l -> norm(l.getTitulo()).equals(alvo))
-                .findFirst();
+    /**
+     * Grava o catálogo inteiro pelo {@link DurableWriter} (tmp + fsync + rename) e espera ficar em disco.
+     * Deve ser chamado fora do lock: mutações concorrentes caem na mesma janela de flush e viram uma escrita só.
+     */
+    /** Registro de estoque quando só a quantidade mudou, senão o livro inteiro. Chamar com o lock. */
+    private long anexarMudanca(Livro anterior, Livro livro) {
+        if (soEstoqueMudou(anterior, livro)) {
+            return journal.anexarEstoque(livro.getId(), livro.getQuantidade() - anterior.getQuantidade(), livro.getQuantidade());
+        }
+        return journal.anexarAtualizacao(livro);
     }
 
-    /** Busca por TÍTULO + AUTHOR (case-insensitive, trim ,e colapso de espacos). */
-    public Optional<Livro> buscarPorTituloAutor(String titulo, String autor) {
-        String t = norm(titulo);
-        String a = norm(autor);
-        return listar().stream()
-                .filter(l -> norm(l.getTitulo()).equals(t) && norm(l.getAutor()).equals(a))
-                .findFirst();
+    /**
+     * Torna a mutação durável, já fora do lock: no modo journal espera o fsync do registro
+     * (compartilhado com as mutações concorrentes); senão grava o CSV pelo DurableWriter.
+     */
+    private void gravar(long registro) {
+        if (modoJournal) journal.sincronizar(registro);
+        else persistir();
+    }
+
+    private void persistir() {
+        DurableWriter.instancia().gravar(Paths.LIVROS, this::linhasCsv);
     }
 
-    // --- util
-    private static String norm(String s) {
-        if (s == null) return "";
-        return s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    /**
+     * Snapshot do catálogo no formato do CSV. Lê o mapa concorrente sem lock (o livro é imutável),
+     * então pode rodar na thread do gravador sem travar as mutações.
+     */
+    private List<String> linhasCsv() {
+        var linhas = new ArrayList<String>(porId.size() + 1);
+        linhas.add("id,titulo,autor,quantidade,preco");
+        for (var l : porId.values()) {
+            String titulo = l.getTitulo() == null ? "" : l.getTitulo().trim();
+            String autor  = l.getAutor()  == null ? "" : l.getAutor().trim();
+            // ponto como separador decimal
+            linhas.add(String.format(Locale.US, "%d,%s,%s,%d,%.2f",
+                    l.getId(), titulo, autor, l.getQuantidade(), l.getPreco()));
+        }
+        return linhas;
     }
 }
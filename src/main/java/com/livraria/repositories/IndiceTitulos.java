@@ -0,0 +1,90 @@
+package com.livraria.repositories;
+
+import com.livraria.models.Livro;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+/**
+ * Índice secundário do catálogo: título normalizado -> ids e (título, autor) normalizados -> ids.
+ * As chaves são calculadas uma vez por livro (na inclusão), então as buscas viram um acesso ao hash.
+ * Quem altera o índice deve estar sob o lock do repositório; as leituras podem ser concorrentes.
+ */
+final class IndiceTitulos {
+
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    // ids ordenados: em caso de títulos repetidos, vale o de menor id (mesma ordem do CSV)
+    private final Map<String, NavigableSet<Integer>> porTitulo = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Integer>> porTituloAutor = new ConcurrentHashMap<>();
+
+    void adicionar(Livro l) {
+        String t = norm(l.getTitulo());
+        porTitulo.computeIfAbsent(t, k -> new ConcurrentSkipListSet<>()).add(l.getId());
+        porTituloAutor.computeIfAbsent(chave(t, norm(l.getAutor())), k -> new ConcurrentSkipListSet<>()).add(l.getId());
+    }
+
+    /**
+     * Livro alterado: só mexe nas chaves que mudaram, e põe a nova antes de tirar a
+     * antiga, então uma busca concorrente nunca deixa de achar o livro no meio da
+     * troca (compras só mudam o estoque e não tocam no índice).
+     */
+    void trocar(Livro anterior, Livro novo) {
+        String ta = norm(anterior.getTitulo()), tn = norm(novo.getTitulo());
+        String ca = chave(ta, norm(anterior.getAutor())), cn = chave(tn, norm(novo.getAutor()));
+        int id = novo.getId();
+        if (!ta.equals(tn)) {
+            porTitulo.computeIfAbsent(tn, k -> new ConcurrentSkipListSet<>()).add(id);
+            tirar(porTitulo, ta, id);
+        }
+        if (!ca.equals(cn)) {
+            porTituloAutor.computeIfAbsent(cn, k -> new ConcurrentSkipListSet<>()).add(id);
+            tirar(porTituloAutor, ca, id);
+        }
+    }
+
+    void remover(Livro l) {
+        String t = norm(l.getTitulo());
+        tirar(porTitulo, t, l.getId());
+        tirar(porTituloAutor, chave(t, norm(l.getAutor())), l.getId());
+    }
+
+    Optional<Integer> idPorTitulo(String titulo) {
+        return primeiro(porTitulo.get(norm(titulo)));
+    }
+
+    Optional<Integer> idPorTituloAutor(String titulo, String autor) {
+        return primeiro(porTituloAutor.get(chave(norm(titulo), norm(autor))));
+    }
+
+    /** Normalização usada nas comparações (trim, colapso de espaços e minúsculas). */
+    static String norm(String s) {
+        if (s == null) return "";
+        return ESPACOS.matcher(s.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    // --- helpers
+
+    private static String chave(String tituloNorm, String autorNorm) {
+        // '\n' nunca aparece num campo do CSV, então serve de separador
+        return tituloNorm + '\n' + autorNorm;
+    }
+
+    private static Optional<Integer> primeiro(NavigableSet<Integer> ids) {
+        if (ids == null) return Optional.empty();
+        // ceiling não lança exceção se o conjunto esvaziar no meio da leitura
+        return Optional.ofNullable(ids.ceiling(Integer.MIN_VALUE));
+    }
+
+    private static void tirar(Map<String, NavigableSet<Integer>> mapa, String chave, int id) {
+        mapa.computeIfPresent(chave, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
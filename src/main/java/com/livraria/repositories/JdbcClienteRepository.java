@@ -0,0 +1,134 @@
+package com.livraria.repositories;
+
+import com.livraria.models.Cliente;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Clientes em banco via JDBC (backend "jdbc").
+ */
+public class JdbcClienteRepository implements ClienteRepository {
+
+    private final DataSource ds;
+
+    public JdbcClienteRepository(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /** Tabela e índices; idempotente. */
+    public static void criarSchema(Connection c) throws SQLException {
+        try (var st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS clientes ("
+                    + " id INT PRIMARY KEY,"
+                    + " nome VARCHAR(1000) NOT NULL,"
+                    + " email VARCHAR(1000) NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_clientes_nome ON clientes(nome)");
+        }
+    }
+
+    @Override
+    public List<Cliente> listar() {
+        return consultar("SELECT id, nome, email FROM clientes ORDER BY id");
+    }
+
+    @Override
+    public Optional<Cliente> buscarPorId(int id) {
+        return consultar("SELECT id, nome, email FROM clientes WHERE id = ?", id).stream().findFirst();
+    }
+
+    @Override
+    public synchronized void salvarTodos(List<Cliente> clientes) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (var st = c.createStatement();
+                 var ps = c.prepareStatement("INSERT INTO clientes (id, nome, email) VALUES (?, ?, ?)")) {
+                st.execute("DELETE FROM clientes");
+                for (var cl : clientes) {
+                    ps.setInt(1, cl.getId());
+                    ps.setString(2, cl.getNome().trim());
+                    ps.setString(3, cl.getEmail().trim());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro gravando clientes no banco", e);
+        }
+    }
+
+    @Override
+    public synchronized Cliente inserir(Cliente novo) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (var st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM clientes");
+                 var ps = c.prepareStatement("INSERT INTO clientes (id, nome, email) VALUES (?, ?, ?)")) {
+                rs.next();
+                var cliente = new Cliente(rs.getInt(1), novo.getNome().trim(), novo.getEmail().trim());
+                ps.setInt(1, cliente.getId());
+                ps.setString(2, cliente.getNome());
+                ps.setString(3, cliente.getEmail());
+                ps.executeUpdate();
+                c.commit();
+                return cliente;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro gravando cliente no banco", e);
+        }
+    }
+
+    @Override
+    public boolean atualizar(Cliente cliente) {
+        return executar("UPDATE clientes SET nome = ?, email = ? WHERE id = ?",
+                cliente.getNome().trim(), cliente.getEmail().trim(), cliente.getId()) > 0;
+    }
+
+    @Override
+    public boolean excluir(int id) {
+        return executar("DELETE FROM clientes WHERE id = ?", id) > 0;
+    }
+
+    // --- helpers
+
+    private int executar(String sql, Object... params) {
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro gravando cliente no banco", e);
+        }
+    }
+
+    private List<Cliente> consultar(String sql, Object... params) {
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            var lista = new ArrayList<Cliente>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new Cliente(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                }
+            }
+            return lista;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro lendo clientes do banco", e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.livraria.repositories;
+
+import com.livraria.models.Livro;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Catálogo em banco via JDBC (backend "jdbc"). As buscas por título usam as colunas
+ * titulo_norm/autor_norm, indexadas, com a mesma normalização do {@link IndiceTitulos}.
+ * Operações com várias linhas (salvarTodos, atualizarTodos) rodam numa transação.
+ */
+public class JdbcLivroRepository implements LivroRepository {
+
+    private static final String COLUNAS = "id, titulo, autor, quantidade, preco";
+
+    private final DataSource ds;
+
+    public JdbcLivroRepository(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /** Tabela e índices; idempotente. */
+    public static void criarSchema(Connection c) throws SQLException {
+        try (var st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS livros ("
+                    + " id INT PRIMARY KEY,"
+                    + " titulo VARCHAR(1000) NOT NULL,"
+                    + " autor VARCHAR(1000) NOT NULL,"
+                    + " quantidade INT NOT NULL,"
+                    + " preco DOUBLE PRECISION NOT NULL,"
+                    + " titulo_norm VARCHAR(1000) NOT NULL,"
+                    + " autor_norm VARCHAR(1000) NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_livros_titulo ON livros(titulo_norm, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_livros_titulo_autor ON livros(titulo_norm, autor_norm, id)");
+        }
+    }
+
+    @Override
+    public List<Livro> listar() {
+        return consultar("SELECT " + COLUNAS + " FROM livros ORDER BY id");
+    }
+
+    @Override
+    public Optional<Livro> buscarPorId(int id) {
+        return consultar("SELECT " + COLUNAS + " FROM livros WHERE id = ?", id).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Livro> buscarPorTitulo(String titulo) {
+        return consultar("SELECT " + COLUNAS + " FROM livros WHERE titulo_norm = ? ORDER BY id LIMIT 1",
+                IndiceTitulos.norm(titulo)).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Livro> buscarPorTituloAutor(String titulo, String autor) {
+        return consultar("SELECT " + COLUNAS + " FROM livros WHERE titulo_norm = ? AND autor_norm = ? ORDER BY id LIMIT 1",
+                IndiceTitulos.norm(titulo), IndiceTitulos.norm(autor)).stream().findFirst();
+    }
+
+    @Override
+    public synchronized void salvarTodos(List<Livro> livros) {
+        emTransacao(c -> {
+            try (var st = c.createStatement()) {
+                st.execute("DELETE FROM livros");
+            }
+            try (var ps = c.prepareStatement("INSERT INTO livros (" + COLUNAS + ", titulo_norm, autor_norm) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (var l : livros) {
+                    bindLivro(ps, l);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized Livro inserir(Livro novo) {
+        return emTransacao(c -> {
+            int nextId;
+            try (var st = c.createStatement(); ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM livros")) {
+                rs.next();
+                nextId = rs.getInt(1);
+            }
+            var livro = new Livro(nextId, trim(novo.getTitulo()), trim(novo.getAutor()), novo.getQuantidade(), novo.getPreco());
+            try (var ps = c.prepareStatement("INSERT INTO livros (" + COLUNAS + ", titulo_norm, autor_norm) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                bindLivro(ps, livro);
+                ps.executeUpdate();
+            }
+            return livro;
+        });
+    }
+
+    @Override
+    public boolean atualizar(Livro livro) {
+        return emTransacao(c -> atualizar(c, livro));
+    }
+
+    @Override
+    public boolean atualizarTodos(Collection<Livro> livros) {
+        return emTransacao(c -> {
+            for (var l : livros) {
+                if (!atualizar(c, l)) {
+                    c.rollback(); // tudo ou nada
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public boolean excluir(int id) {
+        return emTransacao(c -> {
+            try (var ps = c.prepareStatement("DELETE FROM livros WHERE id = ?")) {
+                ps.setInt(1, id);
+                return ps.executeUpdate() > 0;
+            }
+        });
+    }
+
+    // --- helpers
+
+    private interface Trabalho<T> {
+        T executar(Connection c) throws SQLException;
+    }
+
+    private <T> T emTransacao(Trabalho<T> trabalho) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                T r = trabalho.executar(c);
+                c.commit();
+                return r;
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro gravando livros no banco", e);
+        }
+    }
+
+    private static boolean atualizar(Connection c, Livro l) throws SQLException {
+        try (var ps = c.prepareStatement("UPDATE livros SET titulo = ?, autor = ?, quantidade = ?, preco = ?,"
+                + " titulo_norm = ?, autor_norm = ? WHERE id = ?")) {
+            ps.setString(1, trim(l.getTitulo()));
+            ps.setString(2, trim(l.getAutor()));
+            ps.setInt(3, l.getQuantidade());
+            ps.setDouble(4, l.getPreco());
+            ps.setString(5, IndiceTitulos.norm(l.getTitulo()));
+            ps.setString(6, IndiceTitulos.norm(l.getAutor()));
+            ps.setInt(7, l.getId());
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    private static void bindLivro(PreparedStatement ps, Livro l) throws SQLException {
+        ps.setInt(1, l.getId());
+        ps.setString(2, trim(l.getTitulo()));
+        ps.setString(3, trim(l.getAutor()));
+        ps.setInt(4, l.getQuantidade());
+        ps.setDouble(5, l.getPreco());
+        ps.setString(6, IndiceTitulos.norm(l.getTitulo()));
+        ps.setString(7, IndiceTitulos.norm(l.getAutor()));
+    }
+
+    private List<Livro> consultar(String sql, Object... params) {
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            var lista = new ArrayList<Livro>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new Livro(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getDouble(5)));
+                }
+            }
+            return lista;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro lendo livros do banco", e);
+        }
+    }
+
+    private static String trim(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
@@ -0,0 +1,190 @@
+package com.livraria.repositories;
+
+import com.livraria.models.Livro;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal de mutações do catálogo (livros.journal), só de anexação.
+ * Cada linha é um registro compacto separado por TAB:
+ * <pre>
+ *   C  id titulo autor quantidade preco   (criação)
+ *   U  id titulo autor quantidade preco   (atualização completa)
+ *   E  id delta depois                    (ajuste de estoque)
+ *   D  id                                 (exclusão)
+ * </pre>
+ * Todos os registros são idempotentes (o "E" carrega o valor final além do delta),
+ * então reaplicar o journal sobre um snapshot que já os contém não altera o resultado.
+ * Isso permite compactar sem coordenação extra: grava o snapshot e só depois trunca o journal.
+ * <p>
+ * Os anexos são feitos sob o lock do repositório e devolvem a posição do registro; o chamador
+ * espera o fsync com {@link #sincronizar(long)} já fora do lock. Um fsync cobre tudo o que foi
+ * anexado até ele, então mutações concorrentes dividem o mesmo (group commit, como no DurableWriter).
+ */
+final class LivroJournal {
+
+    private static final String SEP = "\t";
+
+    /** Registro lido do journal durante o replay. */
+    record Registro(char tipo, int id, Livro livro, int depois) {}
+
+    private final Path arquivo;
+    private volatile FileChannel out;
+    private int pendentes;
+
+    // bytes anexados desde a criação do objeto, e quantos deles já passaram por um fsync
+    private final Object fsync = new Object();
+    private volatile long escritos;
+    private long duraveis;
+
+    LivroJournal(Path arquivo) {
+        this.arquivo = arquivo;
+    }
+
+    /** Lê todos os registros válidos; uma última linha truncada (crash no meio da escrita) é ignorada. */
+    List<Registro> ler() {
+        var registros = new ArrayList<Registro>();
+        if (!Files.exists(arquivo)) return registros;
+
+        try (BufferedReader br = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Registro r = parse(line);
+                if (r != null) registros.add(r);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro lendo livros.journal", e);
+        }
+        pendentes = registros.size();
+        return registros;
+    }
+
+    long anexarCriacao(Livro l) {
+        return anexar("C" + SEP + livro(l));
+    }
+
+    long anexarAtualizacao(Livro l) {
+        return anexar("U" + SEP + livro(l));
+    }
+
+    long anexarEstoque(int id, int delta, int depois) {
+        return anexar("E" + SEP + id + SEP + delta + SEP + depois);
+    }
+
+    long anexarExclusao(int id) {
+        return anexar("D" + SEP + id);
+    }
+
+    /**
+     * Volta só quando o registro na posição dada está em disco. Quem chega enquanto outro
+     * fsync roda espera por ele e, na maioria das vezes, já sai coberto sem fazer o seu.
+     */
+    void sincronizar(long posicao) {
+        synchronized (fsync) {
+            if (duraveis >= posicao) return;
+            long ate = escritos; // o fsync cobre tudo o que já foi escrito no canal
+            try {
+                out.force(false);
+            } catch (IOException e) {
+                throw new RuntimeException("Erro sincronizando livros.journal", e);
+            }
+            duraveis = ate;
+        }
+    }
+
+    /** Quantidade de registros ainda não compactados. */
+    int pendentes() {
+        return pendentes;
+    }
+
+    /** Esvazia o journal (chamado depois que o snapshot foi gravado). */
+    void truncar() {
+        synchronized (fsync) {
+            fecharWriter();
+            try {
+                Files.deleteIfExists(arquivo);
+            } catch (IOException e) {
+                throw new RuntimeException("Erro truncando livros.journal", e);
+            }
+            // o snapshot recém-gravado já contém tudo o que foi anexado: nada mais a sincronizar
+            duraveis = escritos;
+        }
+        pendentes = 0;
+    }
+
+    // --- helpers
+
+    /** Escreve o registro (sem fsync) e devolve a posição a passar para {@link #sincronizar(long)}. */
+    private long anexar(String linha) {
+        ByteBuffer buf = ByteBuffer.wrap((linha + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        try {
+            if (out == null) {
+                out = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            int n = buf.remaining();
+            while (buf.hasRemaining()) out.write(buf);
+            pendentes++;
+            escritos += n;
+            return escritos;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro escrevendo livros.journal", e);
+        }
+    }
+
+    private void fecharWriter() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // o que importava já foi sincronizado ou está no snapshot
+        }
+        out = null;
+    }
+
+    private static String livro(Livro l) {
+        return l.getId() + SEP + campo(l.getTitulo()) + SEP + campo(l.getAutor())
+                + SEP + l.getQuantidade() + SEP + l.getPreco();
+    }
+
+    private static String campo(String s) {
+        return s == null ? "" : s.trim().replace('\t', ' ');
+    }
+
+    private static Registro parse(String line) {
+        String[] c = line.split(SEP, -1);
+        try {
+            switch (c[0]) {
+                case "C", "U" -> {
+                    if (c.length < 6) return null;
+                    int id = Integer.parseInt(c[1]);
+                    var l = new Livro(id, c[2], c[3], Integer.parseInt(c[4]), Double.parseDouble(c[5]));
+                    return new Registro(c[0].charAt(0), id, l, 0);
+                }
+                case "E" -> {
+                    if (c.length < 4) return null;
+                    return new Registro('E', Integer.parseInt(c[1]), null, Integer.parseInt(c[3]));
+                }
+                case "D" -> {
+                    if (c.length < 2) return null;
+                    return new Registro('D', Integer.parseInt(c[1]), null, 0);
+                }
+                default -> {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null; // registro corrompido/truncado
+        }
+    }
+}
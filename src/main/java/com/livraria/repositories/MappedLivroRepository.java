@@ -0,0 +1,468 @@
+package com.livraria.repositories;
+
+import com.livraria.models.Livro;
+import com.livraria.shared.utils.Paths;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Catálogo em arquivo de registros de largura fixa, mapeado em memória (-Dlivraria.livros.storage=mmap).
+ * <pre>
+ * livros.dat  = cabeçalho (32 bytes) + um registro de 32 bytes por id (slot = id - 1)
+ *   registro:  0 id (0 = vazio) | 4 quantidade | 8 preco (double) | 16 offset no heap | 24 tamanho no heap
+ * livros.heap = textos (título e autor em UTF-8), só de anexação
+ * </pre>
+ * buscarPorId é só uma conta de offset, e uma compra altera 4 bytes no lugar (mais o msync da página),
+ * sem reescrever o catálogo. Título/autor alterados ganham uma entrada nova no heap; o espaço antigo
+ * só é recuperado num salvarTodos, que regrava o heap do zero.
+ * <p>
+ * Leituras são otimistas (StampedLock): só caem para o lock de leitura se uma escrita ocorreu no meio.
+ * <p>
+ * A importação do livros.csv (primeira subida, livros.dat inexistente) e o salvarTodos gravam o
+ * catálogo inteiro em livros.heap.tmp e livros.dat.tmp, com o MAGIC do .dat escrito por último, e só
+ * então renomeiam os dois por cima dos atuais (o heap antes, o .dat depois). Na subida, um .dat.tmp
+ * com MAGIC é uma troca já decidida e é concluída; sem MAGIC, é uma gravação interrompida e é
+ * descartada. Uma queda no meio nunca deixa um catálogo vazio ou pela metade no lugar do anterior.
+ */
+public class MappedLivroRepository implements LivroRepository {
+
+    // cabeçalho de livros.dat
+    private static final int MAGIC = 0x4C565231; // "LVR1"
+    private static final int H_MAGIC = 0;
+    private static final int H_CAPACIDADE = 4;   // slots mapeados
+    private static final int H_MAX_ID = 8;       // maior id já gravado
+    private static final int H_HEAP_TOPO = 16;   // bytes usados do heap (long)
+    private static final int CABECALHO = 32;
+
+    // registro
+    private static final int R_ID = 0;
+    private static final int R_QTD = 4;
+    private static final int R_PRECO = 8;
+    private static final int R_HEAP_OFF = 16;
+    private static final int R_HEAP_LEN = 24;
+    private static final int REGISTRO = 32;
+
+    private static final int CAPACIDADE_INICIAL = 1024;       // slots
+    private static final int HEAP_INICIAL = 64 * 1024;        // bytes
+
+    private final Path datPath;
+    private final Path heapPath;
+    private final Path datTmp;
+    private final Path heapTmp;
+
+    private FileChannel datCh;
+    private FileChannel heapCh;
+    private volatile MappedByteBuffer dat;
+    private volatile MappedByteBuffer heap;
+
+    private final StampedLock stamp = new StampedLock();
+    // trocado inteiro no salvarTodos: buscas sem lock nunca veem o índice pela metade
+    private volatile IndiceTitulos indice = new IndiceTitulos();
+
+    public MappedLivroRepository() {
+        this(Paths.LIVROS_DAT, Paths.LIVROS_HEAP, Paths.LIVROS);
+    }
+
+    public MappedLivroRepository(Path datPath, Path heapPath, Path csvImportacao) {
+        this.datPath = datPath;
+        this.heapPath = heapPath;
+        this.datTmp = datPath.resolveSibling(datPath.getFileName() + ".tmp");
+        this.heapTmp = heapPath.resolveSibling(heapPath.getFileName() + ".tmp");
+        try {
+            concluirTroca();
+            if (!Files.exists(datPath) || Files.size(datPath) < CABECALHO) {
+                gravarCompleto(CsvLivroRepository.lerCsv(csvImportacao));
+            }
+            abrir();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro abrindo " + datPath, e);
+        }
+        for (var l : lerTodos()) indice.adicionar(l);
+    }
+
+    // ------------------------------------------------------------------ leituras
+
+    @Override
+    public List<Livro> listar() {
+        long st = stamp.readLock();
+        try {
+            return lerTodos();
+        } finally {
+            stamp.unlockRead(st);
+        }
+    }
+
+    @Override
+    public Optional<Livro> buscarPorId(int id) {
+        long st = stamp.tryOptimisticRead();
+        Livro l = null;
+        try {
+            l = ler(id);
+        } catch (RuntimeException e) {
+            st = 0; // leitura rasgada por uma escrita concorrente
+        }
+        if (st != 0 && stamp.validate(st)) return Optional.ofNullable(l);
+
+        st = stamp.readLock();
+        try {
+            return Optional.ofNullable(ler(id));
+        } finally {
+            stamp.unlockRead(st);
+        }
+    }
+
+    @Override
+    public Optional<Livro> buscarPorTitulo(String titulo) {
+        return indice.idPorTitulo(titulo).flatMap(this::buscarPorId);
+    }
+
+    @Override
+    public Optional<Livro> buscarPorTituloAutor(String titulo, String autor) {
+        return indice.idPorTituloAutor(titulo, autor).flatMap(this::buscarPorId);
+    }
+
+    // ------------------------------------------------------------------ escritas
+
+    /**
+     * Regrava o catálogo em arquivos novos (o heap sai sem lixo) e troca pelos atuais. As leituras
+     * seguem nos mapeamentos antigos enquanto os novos são gravados; o write lock só cobre a troca.
+     */
+    @Override
+    public synchronized void salvarTodos(List<Livro> livros) {
+        FileChannel datAntigo = datCh, heapAntigo = heapCh;
+        try {
+            gravarCompleto(livros);
+            long st = stamp.writeLock();
+            try {
+                abrir();
+                var novo = new IndiceTitulos();
+                for (var l : lerTodos()) novo.adicionar(l);
+                indice = novo;
+            } finally {
+                stamp.unlockWrite(st);
+            }
+            // os buffers antigos continuam válidos depois de fechar o canal
+            datAntigo.close();
+            heapAntigo.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro gravando " + datPath, e);
+        }
+    }
+
+    @Override
+    public synchronized Livro inserir(Livro novo) {
+        long st = stamp.writeLock();
+        try {
+            int nextId = maiorIdOcupado() + 1;
+            var livro = new Livro(nextId, novo.getTitulo(), novo.getAutor(), novo.getQuantidade(), novo.getPreco());
+            escrever(livro, true);
+            forcar(livro.getId());
+            return livro;
+        } finally {
+            stamp.unlockWrite(st);
+        }
+    }
+
+    @Override
+    public synchronized boolean atualizar(Livro livro) {
+        long st = stamp.writeLock();
+        try {
+            Livro anterior = ler(livro.getId());
+            if (anterior == null) return false;
+            escrever(livro, textoMudou(anterior, livro));
+            forcar(livro.getId());
+            return true;
+        } finally {
+            stamp.unlockWrite(st);
+        }
+    }
+
+    @Override
+    public synchronized boolean atualizarTodos(Collection<Livro> livros) {
+        long st = stamp.writeLock();
+        try {
+            for (var l : livros) {
+                if (ler(l.getId()) == null) return false;
+            }
+            for (var l : livros) {
+                escrever(l, textoMudou(ler(l.getId()), l));
+                forcar(l.getId());
+            }
+            return true;
+        } finally {
+            stamp.unlockWrite(st);
+        }
+    }
+
+    @Override
+    public synchronized boolean excluir(int id) {
+        long st = stamp.writeLock();
+        try {
+            Livro anterior = ler(id);
+            if (anterior == null) return false;
+            dat.putInt(offset(id) + R_ID, 0);
+            indice.remover(anterior);
+            forcar(id);
+            return true;
+        } finally {
+            stamp.unlockWrite(st);
+        }
+    }
+
+    // ------------------------------------------------------------------ registro <-> Livro
+
+    private static int offset(int id) {
+        return CABECALHO + (id - 1) * REGISTRO;
+    }
+
+    /** Todos os livros, em ordem de id. Chamar com algum lock. */
+    private List<Livro> lerTodos() {
+        int max = dat.getInt(H_MAX_ID);
+        var lista = new ArrayList<Livro>();
+        for (int id = 1; id <= max; id++) {
+            Livro l = ler(id);
+            if (l != null) lista.add(l);
+        }
+        return lista;
+    }
+
+    /** Decodifica o slot do id; null se vazio ou fora do arquivo. */
+    private Livro ler(int id) {
+        MappedByteBuffer d = dat;
+        if (id <= 0 || id > d.getInt(H_CAPACIDADE)) return null;
+        int off = offset(id);
+        if (d.getInt(off + R_ID) != id) return null;
+
+        int qtd = d.getInt(off + R_QTD);
+        double preco = d.getDouble(off + R_PRECO);
+        long p = d.getLong(off + R_HEAP_OFF);
+        int tamanho = d.getInt(off + R_HEAP_LEN);
+
+        // na leitura otimista o registro pode estar sendo regravado (ou o heap trocado no
+        // meio): confere os limites antes de alocar, e o chamador refaz a leitura sob o lock
+        MappedByteBuffer h = heap;
+        if (p < 0 || tamanho < 8 || p + tamanho > h.capacity()) throw inconsistente(id);
+        int lenTitulo = h.getInt((int) p);
+        if (lenTitulo < 0 || lenTitulo > tamanho - 8) throw inconsistente(id);
+        int lenAutor = h.getInt((int) p + 4 + lenTitulo);
+        if (lenAutor != tamanho - 8 - lenTitulo) throw inconsistente(id);
+        String titulo = texto(h, (int) p + 4, lenTitulo);
+        String autor = texto(h, (int) p + 8 + lenTitulo, lenAutor);
+
+        return new Livro(id, titulo, autor, qtd, preco);
+    }
+
+    private static IllegalStateException inconsistente(int id) {
+        return new IllegalStateException("Registro inconsistente no livros.heap (id " + id + ")");
+    }
+
+    /** Grava o registro; só anexa texto no heap quando título/autor mudaram. Chamar com o write lock. */
+    private void escrever(Livro l, boolean comTexto) {
+        garantirCapacidade(l.getId());
+        int off = offset(l.getId());
+
+        if (comTexto) {
+            Livro anterior = ler(l.getId());
+
+            byte[] t = bytes(l.getTitulo());
+            byte[] a = bytes(l.getAutor());
+            int tamanho = 8 + t.length + a.length;
+            long topo = dat.getLong(H_HEAP_TOPO);
+            garantirHeap(topo + tamanho);
+
+            int p = (int) topo;
+            heap.putInt(p, t.length);
+            heap.put(p + 4, t);
+            heap.putInt(p + 4 + t.length, a.length);
+            heap.put(p + 8 + t.length, a);
+            heap.force(p, tamanho);
+
+            dat.putLong(off + R_HEAP_OFF, topo);
+            dat.putInt(off + R_HEAP_LEN, tamanho);
+            dat.putLong(H_HEAP_TOPO, topo + tamanho);
+            if (anterior != null) indice.trocar(anterior, l);
+            else indice.adicionar(l);
+        }
+
+        dat.putInt(off + R_QTD, l.getQuantidade());
+        dat.putDouble(off + R_PRECO, l.getPreco());
+        dat.putInt(off + R_ID, l.getId());
+        if (l.getId() > dat.getInt(H_MAX_ID)) dat.putInt(H_MAX_ID, l.getId());
+    }
+
+    /** msync só da página do registro e do cabeçalho. */
+    private void forcar(int id) {
+        dat.force(offset(id), REGISTRO);
+        dat.force(0, CABECALHO);
+    }
+
+    private int maiorIdOcupado() {
+        for (int id = dat.getInt(H_MAX_ID); id > 0; id--) {
+            if (dat.getInt(offset(id) + R_ID) == id) return id;
+        }
+        return 0;
+    }
+
+    private static boolean textoMudou(Livro antes, Livro depois) {
+        return !Objects.equals(antes.getTitulo(), depois.getTitulo())
+                || !Objects.equals(antes.getAutor(), depois.getAutor());
+    }
+
+    // ------------------------------------------------------------------ arquivos
+
+    private void abrir() throws IOException {
+        datCh = FileChannel.open(datPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        heapCh = FileChannel.open(heapPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dat = mapear(datCh, datCh.size());
+        heap = mapear(heapCh, Math.max(HEAP_INICIAL, heapCh.size()));
+        if (dat.getInt(H_MAGIC) != MAGIC) {
+            throw new IllegalStateException("Arquivo não é um catálogo mapeado: " + datPath);
+        }
+    }
+
+    /** Grava o catálogo inteiro nos .tmp (MAGIC por último) e promove os dois. */
+    private void gravarCompleto(List<Livro> livros) throws IOException {
+        int maxId = 0;
+        for (var l : livros) maxId = Math.max(maxId, l.getId());
+        int cap = CAPACIDADE_INICIAL;
+        while (cap < maxId) cap *= 2;
+
+        ByteBuffer d = ByteBuffer.allocate(CABECALHO + cap * REGISTRO);
+        var bytesHeap = new ByteArrayOutputStream(HEAP_INICIAL);
+        var h = new DataOutputStream(bytesHeap);
+        for (var l : livros) {
+            byte[] t = bytes(l.getTitulo());
+            byte[] a = bytes(l.getAutor());
+            int off = offset(l.getId());
+            d.putInt(off + R_ID, l.getId());
+            d.putInt(off + R_QTD, l.getQuantidade());
+            d.putDouble(off + R_PRECO, l.getPreco());
+            d.putLong(off + R_HEAP_OFF, h.size());
+            d.putInt(off + R_HEAP_LEN, 8 + t.length + a.length);
+            h.writeInt(t.length);
+            h.write(t);
+            h.writeInt(a.length);
+            h.write(a);
+        }
+        d.putInt(H_CAPACIDADE, cap);
+        d.putInt(H_MAX_ID, maxId);
+        d.putLong(H_HEAP_TOPO, h.size());
+
+        try (var ch = FileChannel.open(heapTmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer b = ByteBuffer.wrap(bytesHeap.toByteArray());
+            while (b.hasRemaining()) ch.write(b);
+            ch.force(true);
+        }
+        try (var ch = FileChannel.open(datTmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (d.hasRemaining()) ch.write(d); // H_MAGIC ainda zerado
+            ch.force(true);
+            ch.write(ByteBuffer.allocate(4).putInt(0, MAGIC), H_MAGIC);
+            ch.force(true);
+        }
+        promover();
+    }
+
+    /** Renomeia os .tmp por cima dos atuais: o heap primeiro, o .dat (que aponta para ele) por último. */
+    private void promover() throws IOException {
+        if (Files.exists(heapTmp)) mover(heapTmp, heapPath);
+        mover(datTmp, datPath);
+        // fsync do diretório para os renames sobreviverem a uma queda de energia (não suportado em todo SO)
+        try (FileChannel dir = FileChannel.open(datPath.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+            // ex.: Windows não abre diretório como canal
+        }
+    }
+
+    /** Subida depois de uma queda no meio de uma gravação completa: conclui ou descarta. */
+    private void concluirTroca() throws IOException {
+        if (temMagic(datTmp)) {
+            promover();
+        } else {
+            Files.deleteIfExists(datTmp);
+            Files.deleteIfExists(heapTmp);
+        }
+    }
+
+    private static boolean temMagic(Path p) throws IOException {
+        if (!Files.exists(p) || Files.size(p) < CABECALHO) return false;
+        try (var ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(4);
+            ch.read(b, H_MAGIC);
+            return b.getInt(0) == MAGIC;
+        }
+    }
+
+    private static void mover(Path origem, Path destino) throws IOException {
+        try {
+            Files.move(origem, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origem, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ------------------------------------------------------------------ mapeamento
+
+    private void garantirCapacidade(int id) {
+        int cap = dat.getInt(H_CAPACIDADE);
+        if (id <= cap) return;
+        int nova = Math.max(id, cap * 2);
+        try {
+            dat.force();
+            dat = mapear(datCh, CABECALHO + (long) nova * REGISTRO);
+            dat.putInt(H_CAPACIDADE, nova);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ampliando livros.dat", e);
+        }
+    }
+
+    private void garantirHeap(long necessario) {
+        if (necessario <= heap.capacity()) return;
+        long nova = Math.max(necessario, (long) heap.capacity() * 2);
+        if (nova > Integer.MAX_VALUE) {
+            throw new IllegalStateException("livros.heap passou de 2GB");
+        }
+        try {
+            heap.force();
+            heap = mapear(heapCh, nova);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ampliando livros.heap", e);
+        }
+    }
+
+    private static MappedByteBuffer mapear(FileChannel ch, long tamanho) throws IOException {
+        if (ch.size() < tamanho) {
+            ch.write(ByteBuffer.wrap(new byte[1]), tamanho - 1); // estende o arquivo
+        }
+        return ch.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+    }
+
+    private static byte[] bytes(String s) {
+        return (s == null ? "" : s.trim()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String texto(MappedByteBuffer h, int pos, int len) {
+        byte[] b = new byte[len];
+        h.get(pos, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
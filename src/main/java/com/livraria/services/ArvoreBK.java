@@ -0,0 +1,169 @@
+package com.livraria.services;
+
+import com.livraria.models.Livro;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Árvore BK dos títulos normalizados (ver {@link SugestoesTitulos#normalizar}) para
+ * achar títulos a poucas edições (Levenshtein) do digitado sem medir a distância
+ * até o catálogo inteiro: cada filho fica pendurado pela distância até o pai, e
+ * pela desigualdade triangular só descem na busca os filhos com distância em
+ * [d - max, d + max].
+ * <p>
+ * Livros com o mesmo título normalizado dividem o nó. Inclusões entram direto na
+ * árvore; como a árvore BK não tem remoção, excluir ou renomear livro marca a
+ * árvore como desatualizada e a próxima busca a refaz a partir do catálogo.
+ */
+final class ArvoreBK {
+
+    /** Um título achado, a distância até o digitado e os ids com esse título. */
+    record Achado(String titulo, int distancia, List<Integer> ids) {}
+
+    private static final class No {
+        final String titulo;
+        final List<Integer> ids = new ArrayList<>(1);
+        final Map<Integer, No> filhos = new HashMap<>();
+
+        No(String titulo) {
+            this.titulo = titulo;
+        }
+    }
+
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private final Supplier<List<Livro>> catalogo;
+    private boolean desatualizada = true;
+    private No raiz;
+    private final Map<Integer, String> tituloDoId = new HashMap<>();
+
+    ArvoreBK(Supplier<List<Livro>> catalogo) {
+        this.catalogo = catalogo;
+    }
+
+    /** Livro incluído ou alterado: título novo entra na árvore; título trocado a invalida. */
+    void colocar(Livro l) {
+        rw.writeLock().lock();
+        try {
+            if (desatualizada) return;
+            String t = SugestoesTitulos.normalizar(l.getTitulo());
+            String anterior = tituloDoId.get(l.getId());
+            if (anterior == null) inserir(t, l.getId());
+            else if (!anterior.equals(t)) desatualizada = true;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    void remover(int id) {
+        rw.writeLock().lock();
+        try {
+            desatualizada = true;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /** Títulos a no máximo {@code max} edições do digitado, do mais perto para o mais longe. */
+    List<Achado> buscar(String titulo, int max) {
+        String alvo = SugestoesTitulos.normalizar(titulo);
+        if (desatualizadaAgora()) reconstruir();
+        rw.readLock().lock();
+        try {
+            var out = new ArrayList<Achado>();
+            if (raiz == null) return out;
+            // duas linhas da tabela de Levenshtein, reaproveitadas a cada nó
+            int[] anterior = new int[alvo.length() + 1];
+            int[] atual = new int[alvo.length() + 1];
+            var pilha = new ArrayDeque<No>();
+            pilha.push(raiz);
+            while (!pilha.isEmpty()) {
+                var no = pilha.pop();
+                int d = levenshtein(alvo, no.titulo, anterior, atual);
+                if (d <= max) out.add(new Achado(no.titulo, d, List.copyOf(no.ids)));
+                for (var f : no.filhos.entrySet()) {
+                    if (Math.abs(f.getKey() - d) <= max) pilha.push(f.getValue());
+                }
+            }
+            out.sort(Comparator.comparingInt(Achado::distancia).thenComparing(Achado::titulo));
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    static int levenshtein(String a, String b, int[] anterior, int[] atual) {
+        int n = a.length();
+        for (int i = 0; i <= n; i++) anterior[i] = i;
+        for (int j = 1; j <= b.length(); j++) {
+            atual[0] = j;
+            char cb = b.charAt(j - 1);
+            for (int i = 1; i <= n; i++) {
+                int troca = anterior[i - 1] + (a.charAt(i - 1) == cb ? 0 : 1);
+                atual[i] = Math.min(troca, Math.min(anterior[i], atual[i - 1]) + 1);
+            }
+            int[] t = anterior;
+            anterior = atual;
+            atual = t;
+        }
+        return anterior[n];
+    }
+
+    // --- helpers
+
+    private void inserir(String titulo, int id) {
+        tituloDoId.put(id, titulo);
+        if (raiz == null) {
+            raiz = new No(titulo);
+            raiz.ids.add(id);
+            return;
+        }
+        int[] anterior = new int[titulo.length() + 1];
+        int[] atual = new int[titulo.length() + 1];
+        var no = raiz;
+        while (true) {
+            int d = levenshtein(titulo, no.titulo, anterior, atual);
+            if (d == 0) {
+                no.ids.add(id);
+                return;
+            }
+            var filho = no.filhos.get(d);
+            if (filho == null) {
+                filho = new No(titulo);
+                filho.ids.add(id);
+                no.filhos.put(d, filho);
+                return;
+            }
+            no = filho;
+        }
+    }
+
+    private boolean desatualizadaAgora() {
+        rw.readLock().lock();
+        try {
+            return desatualizada;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    private void reconstruir() {
+        rw.writeLock().lock();
+        try {
+            // catálogo lido sob o lock, como em SugestoesTitulos
+            if (!desatualizada) return;
+            raiz = null;
+            tituloDoId.clear();
+            for (var l : catalogo.get()) inserir(SugestoesTitulos.normalizar(l.getTitulo()), l.getId());
+            desatualizada = false;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.livraria.services;
+
+import com.livraria.models.Livro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Catálogo em memória já ordenado por título, autor, preço e quantidade, para a
+ * listagem paginada de /api/livros.
+ * <p>
+ * Cada ordem é um array de ids mantido ordenado: uma página sem filtro é um
+ * pedaço do array (O(size)), e os filtros de preço e de estoque viram uma faixa
+ * achada por busca binária no array de preço ou de quantidade. Alterar um livro
+ * tira e recoloca o id em cada array (busca binária + arraycopy), então compras
+ * não reordenam o catálogo. Empates são desfeitos pelo id.
+ * <p>
+ * Como os outros índices do {@link LivroService}, é carregado na primeira consulta
+ * e acompanha criar/atualizar/excluir/comprar.
+ */
+public final class CatalogoOrdenado {
+
+    public enum Ordem {
+        TITULO, AUTOR, PRECO, QUANTIDADE;
+
+        static Ordem de(String v) {
+            String x = v.trim().toLowerCase(Locale.ROOT);
+            for (var o : values()) {
+                if (o.name().toLowerCase(Locale.ROOT).equals(x)) return o;
+            }
+            throw new IllegalArgumentException("Ordenação inválida: use titulo, autor, preco ou quantidade");
+        }
+    }
+
+    /** Filtros da listagem; preço nulo = sem limite. */
+    public record Filtro(Double precoMin, Double precoMax, boolean emEstoque) {
+
+        boolean vazio() {
+            return precoMin == null && precoMax == null && !emEstoque;
+        }
+
+        private boolean aceita(Entrada e) {
+            if (precoMin != null && e.preco() < precoMin) return false;
+            if (precoMax != null && e.preco() > precoMax) return false;
+            return !emEstoque || e.quantidade() > 0;
+        }
+    }
+
+    public record Pagina(List<Livro> livros, int total, boolean hasNext) {}
+
+    /** Chaves de ordenação de um livro, copiadas na entrada (título e autor normalizados uma vez só). */
+    private record Entrada(Livro livro, String titulo, String autor, double preco, int quantidade) {
+
+        static Entrada de(Livro l) {
+            return new Entrada(l, SugestoesTitulos.normalizar(l.getTitulo()),
+                    SugestoesTitulos.normalizar(l.getAutor()), l.getPreco(), l.getQuantidade());
+        }
+
+        int id() {
+            return livro.getId();
+        }
+    }
+
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private final Supplier<List<Livro>> catalogo;
+    private volatile boolean carregado;
+
+    private final Map<Integer, Entrada> porId = new HashMap<>();
+    private final Map<Ordem, int[]> ordens = new EnumMap<>(Ordem.class);
+    private final Map<Ordem, Comparator<Entrada>> comparadores = new EnumMap<>(Ordem.class);
+    private int n;
+
+    CatalogoOrdenado(Supplier<List<Livro>> catalogo) {
+        this.catalogo = catalogo;
+        comparadores.put(Ordem.TITULO, Comparator.comparing(Entrada::titulo));
+        comparadores.put(Ordem.AUTOR, Comparator.<Entrada, String>comparing(Entrada::autor).thenComparing(Entrada::titulo));
+        comparadores.put(Ordem.PRECO, Comparator.comparingDouble(Entrada::preco));
+        comparadores.put(Ordem.QUANTIDADE, Comparator.comparingInt(Entrada::quantidade));
+        comparadores.replaceAll((o, c) -> c.thenComparingInt(Entrada::id));
+    }
+
+    /** Livro incluído ou alterado (inclusive só o estoque). */
+    void colocar(Livro l) {
+        rw.writeLock().lock();
+        try {
+            if (!carregado) return;
+            tirar(l.getId());
+            var e = Entrada.de(l);
+            porId.put(l.getId(), e);
+            for (var o : Ordem.values()) {
+                int[] ids = garantirCapacidade(o);
+                int p = posicao(o, e);
+                System.arraycopy(ids, p, ids, p + 1, n - p);
+                ids[p] = l.getId();
+            }
+            n++;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    void remover(int id) {
+        rw.writeLock().lock();
+        try {
+            if (carregado) tirar(id);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Página {@code page} (a partir de 1) na ordem pedida. Sem filtro, ou com o
+     * filtro que a própria ordem resolve (preço ordenado por preço, estoque
+     * ordenado por quantidade), a página é um pedaço do array; senão o array é
+     * percorrido na ordem pulando quem não passa, e o total é contado na menor
+     * faixa que os filtros de preço/estoque permitem.
+     */
+    Pagina pagina(Ordem ordem, boolean decrescente, Filtro f, int page, int size) {
+        if (!carregado) carregar();
+        rw.readLock().lock();
+        try {
+            int[] faixa = faixa(ordem, f); // [ini, fim) do array da ordem; nulo se a ordem não resolve o filtro
+            int[] ids = ordens.get(ordem);
+            // em long: page * size de uma página muito adiante estoura int
+            long inicio = (long) (page - 1) * size;
+            int total = faixa != null ? faixa[1] - faixa[0] : contar(f);
+            if (inicio >= total) return new Pagina(List.of(), total, false);
+            int from = (int) inicio;
+            var out = new ArrayList<Livro>(Math.min(size, 256));
+
+            if (faixa != null) {
+                int ini = faixa[0], fim = faixa[1];
+                for (int k = from, ate = (int) Math.min(total, inicio + size); k < ate; k++) {
+                    int i = decrescente ? fim - 1 - k : ini + k;
+                    out.add(porId.get(ids[i]).livro());
+                }
+                return new Pagina(out, total, inicio + size < total);
+            }
+
+            int vistos = 0;
+            for (int k = 0; k < n && out.size() < size; k++) {
+                var e = porId.get(ids[decrescente ? n - 1 - k : k]);
+                if (!f.aceita(e)) continue;
+                if (vistos++ >= from) out.add(e.livro());
+            }
+            return new Pagina(out, total, inicio + size < total);
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    // --- helpers
+
+    /** Faixa do array da ordem que é exatamente o filtro, ou nulo. */
+    private int[] faixa(Ordem ordem, Filtro f) {
+        if (f.vazio()) return new int[] {0, n};
+        boolean porPreco = f.precoMin() != null || f.precoMax() != null;
+        if (ordem == Ordem.PRECO && !f.emEstoque()) return faixaDePreco(f);
+        if (ordem == Ordem.QUANTIDADE && !porPreco) return new int[] {emEstoqueDesde(), n};
+        return null;
+    }
+
+    private int contar(Filtro f) {
+        if (f.precoMin() != null || f.precoMax() != null) {
+            int[] r = faixaDePreco(f);
+            if (!f.emEstoque()) return r[1] - r[0];
+            int[] ids = ordens.get(Ordem.PRECO);
+            int total = 0;
+            for (int i = r[0]; i < r[1]; i++) {
+                if (porId.get(ids[i]).quantidade() > 0) total++;
+            }
+            return total;
+        }
+        return n - emEstoqueDesde(); // só emEstoque
+    }
+
+    private int[] faixaDePreco(Filtro f) {
+        int[] ids = ordens.get(Ordem.PRECO);
+        int ini = f.precoMin() == null ? 0 : primeiro(ids, i -> porId.get(i).preco() >= f.precoMin());
+        int fim = f.precoMax() == null ? n : primeiro(ids, i -> porId.get(i).preco() > f.precoMax());
+        return new int[] {ini, Math.max(ini, fim)};
+    }
+
+    private int emEstoqueDesde() {
+        return primeiro(ordens.get(Ordem.QUANTIDADE), i -> porId.get(i).quantidade() > 0);
+    }
+
+    /** Primeira posição em que o teste (monótono no array) passa a valer. */
+    private int primeiro(int[] ids, IntPredicate teste) {
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (teste.test(ids[mid])) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /** Posição em que a entrada fica (ou está) no array da ordem. */
+    private int posicao(Ordem o, Entrada e) {
+        int[] ids = ordens.get(o);
+        var c = comparadores.get(o);
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c.compare(porId.get(ids[mid]), e) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void tirar(int id) {
+        var antiga = porId.get(id);
+        if (antiga == null) return;
+        for (var o : Ordem.values()) {
+            int[] ids = ordens.get(o);
+            int p = posicao(o, antiga); // achada com as chaves antigas, antes de trocar a entrada
+            System.arraycopy(ids, p + 1, ids, p, n - p - 1);
+        }
+        porId.remove(id);
+        n--;
+    }
+
+    private int[] garantirCapacidade(Ordem o) {
+        int[] ids = ordens.get(o);
+        if (n < ids.length) return ids;
+        ids = Arrays.copyOf(ids, Math.max(16, ids.length * 2));
+        ordens.put(o, ids);
+        return ids;
+    }
+
+    private void carregar() {
+        rw.writeLock().lock();
+        try {
+            // catálogo lido sob o lock, como nos outros índices
+            if (carregado) return;
+            var livros = catalogo.get();
+            n = livros.size();
+            for (var l : livros) porId.put(l.getId(), Entrada.de(l));
+            for (var o : Ordem.values()) {
+                var c = comparadores.get(o);
+                int[] ids = livros.stream().map(l -> porId.get(l.getId())).sorted(c).mapToInt(Entrada::id).toArray();
+                ordens.put(o, Arrays.copyOf(ids, Math.max(16, ids.length)));
+            }
+            carregado = true;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+}
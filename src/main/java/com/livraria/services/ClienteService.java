@@ -1,18 +1,23 @@
 package com.livraria.services;
 
 import com.livraria.models.Cliente;
-import com.livraria.repositories.CsvClienteRepository;
+import com.livraria.repositories.ClienteRepository;
+import com.livraria.shared.storage.Storage;
 import com.livraria.utils.LoggerUtils;
 
-import java.util.ArrayList;
 import java.util.Locale;
+import java.util.NoSuchElementException;
 
 public class ClienteService {
-    private final CsvClienteRepository repo;
+    private final ClienteRepository repo;
     private final LoggerUtils logger;
 
     public ClienteService() {
-        this.repo = new CsvClienteRepository();
+        this(Storage.provider().clientes());
+    }
+
+    public ClienteService(ClienteRepository repo) {
+        this.repo = repo;
         this.logger = new LoggerUtils();
     }
 
@@ -20,6 +25,10 @@ public class ClienteService {
         return repo.listar();
     }
 
+    public Cliente buscar(int id) {
+        return repo.buscarPorId(id).orElseThrow(() -> new NoSuchElementException("Cliente não encontrado"));
+    }
+
     /** Criação cliente novo. Bloqueia if (nome + email) já existir (case-insensitive, trim). */
     public Cliente criar(Cliente novo) {
         String nomeBruto  = novo.getNome();
@@ -45,12 +54,7 @@ public class ClienteService {
             throw new IllegalArgumentException("Cliente já existente, impossível realizar novo cadastro");
         }
 
-        int nextId = existentes.stream().mapToInt(Cliente::getId).max().orElse(0) + 1;
-        var cliente = new Cliente(nextId, nomeBruto.trim(), emailBruto.trim());
-
-        var list = new ArrayList<>(existentes);
-        list.add(cliente);
-        repo.salvarTodos(list);
+        var cliente = repo.inserir(new Cliente(0, nomeBruto.trim(), emailBruto.trim()));
 
         logger.registrar(String.format(
                 "CRIACAO_CLIENTE|id=%d|nome=%s|email=%s",
@@ -60,41 +64,20 @@ public class ClienteService {
     }
 
     public Cliente atualizar(int id, Cliente dados) {
-        var todos = repo.listar();
-        var list = new ArrayList<Cliente>();
-        Cliente atualizado = null;
-
-        for (var c : todos) {
-            if (c.getId() == id) {
-                atualizado = new Cliente(
-                        id,
-                        safeTrim(dados.getNome()),
-                        safeTrim(dados.getEmail())
-                );
-                list.add(atualizado);
-            } else {
-                list.add(c);
-            }
-        }
-        if (atualizado == null) throw new RuntimeException("Cliente não encontrado");
+        var atualizado = new Cliente(
+                id,
+                safeTrim(dados.getNome()),
+                safeTrim(dados.getEmail())
+        );
+        if (!repo.atualizar(atualizado)) throw new RuntimeException("Cliente não encontrado");
 
-        repo.salvarTodos(list);
         logger.registrar(String.format("ATUALIZACAO_CLIENTE|id=%d", id));
         return atualizado;
     }
 
     public void excluir(int id) {
-        var todos = repo.listar();
-        var list = new ArrayList<Cliente>();
-        boolean removed = false;
-
-        for (var c : todos) {
-            if (c.getId() != id) list.add(c);
-            else removed = true;
-        }
-        if (!removed) throw new RuntimeException("Cliente não encontrado");
+        if (!repo.excluir(id)) throw new RuntimeException("Cliente não encontrado");
 
-        repo.salvarTodos(list);
         logger.registrar(String.format("EXCLUSAO_CLIENTE|id=%d", id));
     }
 
@@ -0,0 +1,276 @@
+package com.livraria.services;
+
+import com.livraria.models.Livro;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de título e autor do catálogo para a busca da vitrine.
+ * <p>
+ * Os textos são dobrados (sem acento, minúsculas) e quebrados em palavras; cada
+ * palavra aponta para os ids dos livros em que aparece e em que campo. As palavras
+ * ficam num TreeMap, então um termo da busca casa com as que começam com ele
+ * ("anei" acha "anéis"). As listas são arrays de primitivos e a consulta pontua em
+ * arrays indexados pelo id, do termo mais raro para o mais comum; quando sobram
+ * poucos candidatos diante de um termo muito comum, confere as palavras de cada
+ * candidato em vez de percorrer a lista do termo. Um heap do tamanho do limite
+ * separa os mais pontuados, sem ordenar todos os achados.
+ * <p>
+ * Guarda só ids: os dados do livro (estoque, preço) são lidos do repositório na
+ * hora, então compras não precisam mexer no índice. O catálogo é lido inteiro na
+ * primeira busca; até lá as alterações são ignoradas (a carga já as enxerga).
+ */
+final class IndiceBusca {
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // bits de campo na lista de cada palavra; o bit é também o peso do campo
+    private static final byte TITULO = 2;
+    private static final byte AUTOR = 1;
+
+    /** Um livro que casou com a busca e a pontuação dele. */
+    record Achado(int id, int pontos) {}
+
+    private static final Comparator<Achado> RELEVANCIA =
+            Comparator.comparingInt(Achado::pontos).reversed().thenComparingInt(Achado::id);
+
+    /** Livros de uma palavra (sem ordem) e os campos em que ela aparece em cada um. */
+    private static final class Lista {
+        int[] ids = new int[2];
+        byte[] campos = new byte[2];
+        int n;
+
+        void add(int id, byte campo) {
+            // o livro é indexado inteiro de uma vez: se já está, é o último
+            if (n > 0 && ids[n - 1] == id) {
+                campos[n - 1] |= campo;
+                return;
+            }
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+                campos = Arrays.copyOf(campos, n * 2);
+            }
+            ids[n] = id;
+            campos[n++] = campo;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < n; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--n];
+                    campos[i] = campos[n];
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Palavras distintas de cada campo de um livro. */
+    private record Palavras(String[] titulo, String[] autor) {}
+
+    /** Um termo da busca: as palavras que começam com ele e quantos livros somam. */
+    private record Faixa(String termo, SortedMap<String, Lista> palavras, int tamanho) {}
+
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private final TreeMap<String, Lista> termos = new TreeMap<>();
+    private final Map<Integer, Palavras> palavrasDoLivro = new HashMap<>();
+    private int maiorId;
+    private final Supplier<List<Livro>> catalogo;
+    private volatile boolean carregado;
+
+    IndiceBusca(Supplier<List<Livro>> catalogo) {
+        this.catalogo = catalogo;
+    }
+
+    /** Inclui ou reindexa o livro (mesmo id substitui as palavras anteriores). */
+    void colocar(Livro l) {
+        rw.writeLock().lock();
+        try {
+            if (!carregado) return;
+            desindexar(l.getId());
+            indexar(l);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    void remover(int id) {
+        rw.writeLock().lock();
+        try {
+            if (carregado) desindexar(id);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Os até {@code limite} livros que têm todos os termos (cada um como palavra
+     * inteira ou começo de palavra), do mais para o menos pontuado. Cada termo vale
+     * o peso do campo (título 2, autor 1), em dobro se casar a palavra inteira;
+     * entre as palavras do livro vale a melhor.
+     */
+    List<Achado> buscar(String consulta, int limite) {
+        var termosBusca = palavras(consulta);
+        if (!carregado) carregar();
+        rw.readLock().lock();
+        try {
+            var faixas = new ArrayList<Faixa>();
+            for (String t : termosBusca) {
+                var palavras = termos.subMap(t, true, t + Character.MAX_VALUE, false);
+                int tamanho = 0;
+                for (var l : palavras.values()) tamanho += l.n;
+                if (tamanho == 0) return List.of();
+                faixas.add(new Faixa(t, palavras, tamanho));
+            }
+            if (faixas.isEmpty()) return List.of();
+            faixas.sort(Comparator.comparingInt(Faixa::tamanho)); // o mais raro define os candidatos
+
+            // casou[id] = quantos termos o livro já casou; soma = pontos até aqui;
+            // doTermo = pontos do termo atual (o livro pode ter várias palavras com o prefixo)
+            int[] casou = new int[maiorId + 1]; // int: a consulta pode ter mais de 127 termos
+            int[] soma = new int[maiorId + 1];
+            int[] doTermo = new int[maiorId + 1];
+            int[] candidatos = new int[faixas.get(0).tamanho()];
+            int nCandidatos = 0;
+            int vivos = 0; // candidatos que casaram todos os termos até aqui
+            for (int k = 0; k < faixas.size(); k++) {
+                var f = faixas.get(k);
+                int casaramAgora = 0;
+                // conferir um candidato custa como percorrer umas dezenas de itens de lista
+                if (k > 0 && f.tamanho() > 32 * vivos) {
+                    for (int j = 0; j < nCandidatos; j++) {
+                        int id = candidatos[j];
+                        if (casou[id] != k) continue;
+                        int pontos = pontuar(palavrasDoLivro.get(id), f.termo());
+                        if (pontos == 0) continue;
+                        casou[id] = k + 1;
+                        soma[id] += pontos;
+                        casaramAgora++;
+                    }
+                    vivos = casaramAgora;
+                    continue;
+                }
+                for (var e : f.palavras().entrySet()) {
+                    int fator = e.getKey().length() == f.termo().length() ? 2 : 1;
+                    var l = e.getValue();
+                    for (int i = 0; i < l.n; i++) {
+                        int id = l.ids[i];
+                        int pontos = ((l.campos[i] & TITULO) != 0 ? TITULO : AUTOR) * fator;
+                        if (casou[id] == k) {
+                            casou[id] = k + 1;
+                            soma[id] += pontos;
+                            doTermo[id] = pontos;
+                            casaramAgora++;
+                            if (k == 0) candidatos[nCandidatos++] = id;
+                        } else if (casou[id] == k + 1 && pontos > doTermo[id]) {
+                            soma[id] += pontos - doTermo[id];
+                            doTermo[id] = pontos;
+                        }
+                    }
+                }
+                vivos = casaramAgora;
+            }
+
+            // topo do heap = o pior dos que ficaram
+            int todos = faixas.size();
+            var heap = new PriorityQueue<Achado>(limite + 1, RELEVANCIA.reversed());
+            for (int j = 0; j < nCandidatos; j++) {
+                int id = candidatos[j];
+                if (casou[id] != todos) continue;
+                int pontos = soma[id];
+                if (heap.size() == limite) {
+                    var pior = heap.peek();
+                    if (pontos < pior.pontos() || pontos == pior.pontos() && id > pior.id()) continue;
+                }
+                heap.add(new Achado(id, pontos));
+                if (heap.size() > limite) heap.poll();
+            }
+            var out = new ArrayList<>(heap);
+            out.sort(RELEVANCIA);
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    /** Texto sem acentos, em minúsculas ("Anéis" -> "aneis"). */
+    static String dobrar(String s) {
+        if (s == null) return "";
+        return ACENTOS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /** Palavras distintas do texto dobrado, na ordem em que aparecem. */
+    static Set<String> palavras(String s) {
+        var out = new LinkedHashSet<String>();
+        for (String p : SEPARADORES.split(dobrar(s))) {
+            if (!p.isEmpty()) out.add(p);
+        }
+        return out;
+    }
+
+    // --- helpers (sob o lock de escrita)
+
+    private void carregar() {
+        rw.writeLock().lock();
+        try {
+            // a leitura do catálogo fica sob o lock: uma alteração que termine depois
+            // dela espera a carga e é aplicada em cima
+            if (carregado) return;
+            for (var l : catalogo.get()) indexar(l);
+            carregado = true;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    private void indexar(Livro l) {
+        var p = new Palavras(palavras(l.getTitulo()).toArray(String[]::new),
+                palavras(l.getAutor()).toArray(String[]::new));
+        for (String w : p.titulo()) termos.computeIfAbsent(w, k -> new Lista()).add(l.getId(), TITULO);
+        for (String w : p.autor()) termos.computeIfAbsent(w, k -> new Lista()).add(l.getId(), AUTOR);
+        palavrasDoLivro.put(l.getId(), p);
+        maiorId = Math.max(maiorId, l.getId());
+    }
+
+    private void desindexar(int id) {
+        var antigas = palavrasDoLivro.remove(id);
+        if (antigas == null) return;
+        for (String w : antigas.titulo()) tirar(w, id);
+        for (String w : antigas.autor()) tirar(w, id);
+    }
+
+    private void tirar(String palavra, int id) {
+        termos.computeIfPresent(palavra, (k, l) -> {
+            l.remove(id);
+            return l.n == 0 ? null : l;
+        });
+    }
+
+    /** Mesma pontuação da varredura das listas, a partir das palavras do livro. */
+    private static int pontuar(Palavras p, String termo) {
+        int melhor = 0;
+        for (String w : p.titulo()) {
+            if (w.startsWith(termo)) melhor = Math.max(melhor, TITULO * (w.length() == termo.length() ? 2 : 1));
+        }
+        for (String w : p.autor()) {
+            if (w.startsWith(termo)) melhor = Math.max(melhor, AUTOR * (w.length() == termo.length() ? 2 : 1));
+        }
+        return melhor;
+    }
+}
@@ -1,35 +1,124 @@
 package com.livraria.services;
 
+import com.livraria.models.ItemCompra;
 import com.livraria.models.Livro;
-import com.livraria.repositories.CsvLivroRepository;
+import com.livraria.repositories.LivroRepository;
+import com.livraria.shared.storage.Storage;
 import com.livraria.utils.LoggerUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class LivroService {
 
-    private final CsvLivroRepository repo;
+    // Lock striping por id do livro: operações de estoque em livros diferentes
+    // correm em paralelo; no mesmo livro ficam serializadas (ler -> checar -> gravar).
+    private static final int STRIPES = 64;
+
+    private final LivroRepository repo;
     private final LoggerUtils logger;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final IndiceBusca busca;
+    private final SugestoesTitulos sugestoes;
+    private final ArvoreBK titulosAproximados;
+    private final CatalogoOrdenado ordenado;
+
+    private static final class Holder {
+        static final LivroService INSTANCIA = new LivroService();
+    }
+
+    /**
+     * O serviço do processo, sobre o único repositório residente do catálogo: quem
+     * precisa do catálogo (controllers, ranking do relatório) usa este, para não
+     * abrir uma segunda cópia que não vê as alterações (nem rodar outra
+     * compactação do journal).
+     */
+    public static LivroService instancia() {
+        return Holder.INSTANCIA;
+    }
 
     public LivroService() {
-        this.repo = new CsvLivroRepository();
+        // backend escolhido na subida (-Dlivraria.storage / -Dlivraria.livros.storage)
+        this(Storage.provider().livros());
+    }
+
+    public LivroService(LivroRepository repo) {
+        this.repo = repo;
         this.logger = new LoggerUtils();
+        this.busca = new IndiceBusca(repo::listar);
+        this.sugestoes = new SugestoesTitulos(repo::listar);
+        this.titulosAproximados = new ArvoreBK(repo::listar);
+        this.ordenado = new CatalogoOrdenado(repo::listar);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
     }
 
     public List<Livro> listar() {
         return repo.listar();
     }
 
+    /**
+     * Uma página do catálogo ordenada por {@code sort} (titulo, autor, preco ou
+     * quantidade; com "-" na frente, decrescente), já filtrada. Sai de índices
+     * mantidos ordenados (ver {@link CatalogoOrdenado}), sem ordenar a cada pedido.
+     */
+    public CatalogoOrdenado.Pagina pagina(String sort, CatalogoOrdenado.Filtro filtro, int page, int size) {
+        String s = safeTrim(sort);
+        boolean decrescente = s.startsWith("-");
+        if (decrescente) s = s.substring(1);
+        var ordem = s.isEmpty() ? CatalogoOrdenado.Ordem.TITULO : CatalogoOrdenado.Ordem.de(s);
+        if (filtro.precoMin() != null && filtro.precoMax() != null && filtro.precoMin() > filtro.precoMax()) {
+            throw new IllegalArgumentException("precoMin maior que precoMax");
+        }
+        return ordenado.pagina(ordem, decrescente, filtro, page, size);
+    }
+
+    /** Preço atual do livro com esse título, ou nulo se não está no catálogo. */
+    public Double precoAtual(String titulo) {
+        return repo.buscarPorTitulo(titulo).map(Livro::getPreco).orElse(null);
+    }
+
+    /**
+     * Busca no título e no autor, sem diferenciar acentos e caixa. Todos os termos
+     * precisam aparecer (como palavra ou começo de palavra); os mais relevantes vêm
+     * primeiro (ver {@link IndiceBusca}).
+     */
+    public List<Livro> buscar(String consulta, int limite) {
+        if (IndiceBusca.palavras(consulta).isEmpty()) {
+            throw new IllegalArgumentException("Informe o termo de busca");
+        }
+        var out = new ArrayList<Livro>();
+        for (var achado : busca.buscar(consulta, limite)) {
+            repo.buscarPorId(achado.id()).ifPresent(out::add); // excluído entre o índice e a leitura
+        }
+        return out;
+    }
+
+    /**
+     * Títulos que começam com o prefixo (sem diferenciar acentos, caixa e espaços
+     * extras), os de maior estoque primeiro (ver {@link SugestoesTitulos}).
+     */
+    public List<Livro> sugerir(String prefixo, int limite) {
+        int[] ids = new int[Math.min(limite, SugestoesTitulos.MAX_SUGESTOES)];
+        int n = sugestoes.sugerir(prefixo, ids.length, ids);
+        var out = new ArrayList<Livro>(n);
+        for (int i = 0; i < n; i++) repo.buscarPorId(ids[i]).ifPresent(out::add);
+        return out;
+    }
+
     /**
      * Título e Autor obrigatórios.
      * Se (titulo+autor) já existir, soma quantidade fazendo um merge dos valores;
      * Senão, cria novo registro.
      */
     public Livro criar(Livro novo) {
-        var todos = repo.listar();
-
         String titulo = safeTrim(novo.getTitulo());
         String autor  = safeTrim(novo.getAutor());
         int qtdNova   = Math.max(0, novo.getQuantidade());
@@ -39,46 +128,41 @@ public class LivroService {
             throw new IllegalArgumentException("Título e autor são obrigatórios");
         }
 
-        Livro existente = null;
-        String tNorm = norm(titulo);
-        String aNorm = norm(autor);
-        for (var l : todos) {
-            if (norm(l.getTitulo()).equals(tNorm) && norm(l.getAutor()).equals(aNorm)) {
-                existente = l;
-                break;
-            }
-        }
-
-        if (existente != null) {
-            int antes = existente.getQuantidade();
-            int depois = antes + qtdNova;
-
-            // cria nova instância com quantidade atualizada
-            Livro atualizado = existente.withQuantidade(depois);
-
-            List<Livro> novaLista = new ArrayList<>();
-            for (Livro l : todos) {
-                if (l.getId() == existente.getId()) {
-                    novaLista.add(atualizado);
-                } else {
-                    novaLista.add(l);
+        Livro encontrado = repo.buscarPorTituloAutor(titulo, autor).orElse(null);
+
+        if (encontrado != null) {
+            ReentrantLock lock = stripe(encontrado.getId());
+            lock.lock();
+            try {
+                // relê sob o lock: outra operação pode ter mexido no estoque
+                Livro existente = repo.buscarPorId(encontrado.getId()).orElse(null);
+                if (existente != null) {
+                    int antes = existente.getQuantidade();
+                    int depois = antes + qtdNova;
+
+                    // cria nova instância com quantidade atualizada
+                    Livro atualizado = existente.withQuantidade(depois);
+                    repo.atualizar(atualizado); // título e autor não mudam: o índice de busca fica como está
+                    sugestoes.colocar(atualizado);
+                    ordenado.colocar(atualizado);
+
+                    logger.registrar(String.format(
+                            "ATUALIZACAO|acao=MERGE|id=%d|livro=%s|autor=%s|antes=%d|adicionado=%d|depois=%d|preco=%.2f",
+                            atualizado.getId(), titulo, autor, antes, qtdNova, depois, atualizado.getPreco()
+                    ));
+                    return atualizado;
                 }
+            } finally {
+                lock.unlock();
             }
-            repo.salvarTodos(novaLista);
-
-            logger.registrar(String.format(
-                    "ATUALIZACAO|acao=MERGE|id=%d|livro=%s|autor=%s|antes=%d|adicionado=%d|depois=%d|preco=%.2f",
-                    atualizado.getId(), titulo, autor, antes, qtdNova, depois, atualizado.getPreco()
-            ));
-            return atualizado;
+            // excluído no meio do caminho: segue criando um registro novo
         }
 
-        int nextId = todos.stream().mapToInt(Livro::getId).max().orElse(0) + 1;
-        var livro = new Livro(nextId, titulo, autor, qtdNova, preco);
-
-        var list = new ArrayList<>(todos);
-        list.add(livro);
-        repo.salvarTodos(list);
+        var livro = repo.inserir(new Livro(0, titulo, autor, qtdNova, preco));
+        busca.colocar(livro);
+        sugestoes.colocar(livro);
+        titulosAproximados.colocar(livro);
+        ordenado.colocar(livro);
 
         logger.registrar(String.format(
                 "CRIACAO|id=%d|livro=%s|autor=%s|qtd=%d|preco=%.2f",
@@ -88,10 +172,6 @@ public class LivroService {
     }
 
     public Livro atualizar(int id, Livro dados) {
-        var todos = repo.listar();
-        var list = new ArrayList<Livro>();
-        Livro atualizado = null;
-
         String t = safeTrim(dados.getTitulo());
         String a = safeTrim(dados.getAutor());
 
@@ -99,25 +179,27 @@ public class LivroService {
             throw new IllegalArgumentException("Título e autor são obrigatórios");
         }
 
-        for (var l : todos) {
-            if (l.getId() == id) {
-                atualizado = new Livro(
-                        id,
-                        t,
-                        a,
-                        dados.getQuantidade(),
-                        dados.getPreco()
-                );
-                list.add(atualizado);
-            } else {
-                list.add(l);
+        Livro atualizado = new Livro(
+                id,
+                t,
+                a,
+                dados.getQuantidade(),
+                dados.getPreco()
+        );
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            if (!repo.atualizar(atualizado)) {
+                throw new RuntimeException("Livro não encontrado");
             }
-        }
-        if (atualizado == null) {
-            throw new RuntimeException("Livro não encontrado");
+            busca.colocar(atualizado);
+            sugestoes.colocar(atualizado);
+            titulosAproximados.colocar(atualizado);
+            ordenado.colocar(atualizado);
+        } finally {
+            lock.unlock();
         }
 
-        repo.salvarTodos(list);
         logger.registrar(String.format(
                 "ATUALIZACAO|id=%d|livro=%s|autor=%s|qtd=%d|preco=%.2f",
                 id, atualizado.getTitulo(), atualizado.getAutor(),
@@ -127,65 +209,176 @@ public class LivroService {
     }
 
     public void excluir(int id) {
-        var todos = repo.listar();
-        var alvo = repo.buscarPorId(id)
-                .orElseThrow(() -> new RuntimeException("Livro não encontrado"));
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            var alvo = repo.buscarPorId(id)
+                    .orElseThrow(() -> new RuntimeException("Livro não encontrado"));
+
+            if (alvo.getQuantidade() == 0) {
+                logger.registrar(String.format(
+                        "BLOQUEADA|acao=EXCLUSAO|id=%d|livro=%s|motivo=ESTOQUE_ZERO",
+                        id, alvo.getTitulo()
+                ));
+                return;
+            }
+
+            repo.excluir(id);
+            busca.remover(id);
+            sugestoes.remover(id);
+            titulosAproximados.remover(id);
+            ordenado.remover(id);
 
-        if (alvo.getQuantidade() == 0) {
             logger.registrar(String.format(
-                    "BLOQUEADA|acao=EXCLUSAO|id=%d|livro=%s|motivo=ESTOQUE_ZERO",
+                    "EXCLUSAO|id=%d|livro=%s",
                     id, alvo.getTitulo()
             ));
-            return;
+        } finally {
+            lock.unlock();
         }
-
-        var list = new ArrayList<Livro>();
-        for (var l : todos) {
-            if (l.getId() != id) {
-                list.add(l);
-            }
-        }
-        repo.salvarTodos(list);
-
-        logger.registrar(String.format(
-                "EXCLUSAO|id=%d|livro=%s",
-                id, alvo.getTitulo()
-        ));
     }
 
+    /**
+     * Compra linearizável por livro: a checagem de estoque e a baixa acontecem
+     * sob o lock do stripe do livro, então duas compras simultâneas do mesmo título
+     * nunca vendem além do estoque. Compras de livros diferentes não se bloqueiam.
+     */
     public void comprar(String tituloLivro, String nomeCliente, int quantidade) {
-        var livro = repo.buscarPorTitulo(tituloLivro)
+        comprar(tituloLivro, nomeCliente, quantidade, false);
+    }
+
+    /**
+     * Com {@code aproximado}, um título que não existe exatamente é resolvido pelo
+     * mais próximo (ver {@link #resolverAproximado}); se houver empate entre títulos
+     * diferentes, nada é comprado e lança {@link TituloAmbiguoException}.
+     */
+    public void comprar(String tituloLivro, String nomeCliente, int quantidade, boolean aproximado) {
+        var encontrado = repo.buscarPorTitulo(tituloLivro)
+                .or(() -> aproximado ? resolverAproximado(tituloLivro) : Optional.empty())
                 .orElseThrow(() -> new RuntimeException("Livro não encontrado"));
 
         if (quantidade <= 0) {
             throw new IllegalArgumentException("Quantidade inválida");
         }
 
-        int anterior = livro.getQuantidade();
-        int novo = anterior - quantidade;
+        ReentrantLock lock = stripe(encontrado.getId());
+        lock.lock();
+        try {
+            // relê sob o lock para enxergar a última baixa
+            var livro = repo.buscarPorId(encontrado.getId())
+                    .orElseThrow(() -> new RuntimeException("Livro não encontrado"));
 
-        if (novo < 0) {
-            throw new RuntimeException("Estoque insuficiente");
+            int anterior = livro.getQuantidade();
+            int novo = anterior - quantidade;
+
+            if (novo < 0) {
+                throw new RuntimeException("Estoque insuficiente");
+            }
+
+            var atualizado = livro.withQuantidade(novo);
+            repo.atualizar(atualizado);
+            sugestoes.colocar(atualizado);
+            ordenado.colocar(atualizado);
+
+            logger.registrar(String.format(
+                    "COMPRA|cliente=%s|livro=%s|qtd=%d|antes=%d|depois=%d|preco=%.2f",
+                    nomeCliente, livro.getTitulo(), quantidade, anterior, novo, livro.getPreco()
+            ));
+        } finally {
+            lock.unlock();
         }
+    }
 
-        var todos = repo.listar();
-        var list = new ArrayList<Livro>();
-        for (var l : todos) {
-            if (l.getId() == livro.getId()) {
-                list.add(l.withQuantidade(novo));
-            } else {
-                list.add(l);
+    /**
+     * Compra de um carrinho inteiro numa passada só.
+     * Valida o estoque de todas as linhas antes de mexer em qualquer uma (tudo ou nada),
+     * aplica as baixas com uma única gravação do catálogo e registra os COMPRA em lote.
+     * Linhas repetidas do mesmo livro são somadas.
+     */
+    public void comprarLote(String nomeCliente, List<ItemCompra> itens) {
+        if (itens == null || itens.isEmpty()) {
+            throw new IllegalArgumentException("Carrinho vazio");
+        }
+
+        // resolve títulos e soma as quantidades por livro (mantendo a ordem do carrinho)
+        Map<Integer, Integer> qtdPorId = new LinkedHashMap<>();
+        for (var item : itens) {
+            if (item.quantidade() <= 0) {
+                throw new IllegalArgumentException("Quantidade inválida");
             }
+            var livro = repo.buscarPorTitulo(item.titulo())
+                    .orElseThrow(() -> new RuntimeException("Livro não encontrado: " + item.titulo()));
+            qtdPorId.merge(livro.getId(), item.quantidade(), Integer::sum);
         }
-        repo.salvarTodos(list);
 
-        logger.registrar(String.format(
-                "COMPRA|cliente=%s|livro=%s|qtd=%d|antes=%d|depois=%d",
-                nomeCliente, livro.getTitulo(), quantidade, anterior, novo
-        ));
+        // trava os stripes envolvidos sempre na mesma ordem (evita deadlock entre carrinhos)
+        var indices = new TreeSet<Integer>();
+        for (int id : qtdPorId.keySet()) indices.add(indiceStripe(id));
+        for (int i : indices) stripes[i].lock();
+        try {
+            var atualizados = new ArrayList<Livro>();
+            var mensagens = new ArrayList<String>();
+
+            for (var e : qtdPorId.entrySet()) {
+                var livro = repo.buscarPorId(e.getKey())
+                        .orElseThrow(() -> new RuntimeException("Livro não encontrado"));
+                int anterior = livro.getQuantidade();
+                int novo = anterior - e.getValue();
+                if (novo < 0) {
+                    throw new RuntimeException("Estoque insuficiente: " + livro.getTitulo());
+                }
+                atualizados.add(livro.withQuantidade(novo));
+                mensagens.add(String.format(
+                        "COMPRA|cliente=%s|livro=%s|qtd=%d|antes=%d|depois=%d|preco=%.2f",
+                        nomeCliente, livro.getTitulo(), e.getValue(), anterior, novo, livro.getPreco()
+                ));
+            }
+
+            repo.atualizarTodos(atualizados);
+            for (var l : atualizados) {
+                sugestoes.colocar(l);
+                ordenado.colocar(l);
+            }
+            logger.registrarTodos(mensagens);
+        } finally {
+            for (int i : indices.descendingSet()) stripes[i].unlock();
+        }
+    }
+
+    /**
+     * Título mais próximo do digitado, até 1 edição (títulos de até 3 caracteres)
+     * ou 2 edições, sem diferenciar acentos, caixa e espaços extras. Vários livros
+     * com o mesmo título contam como um só, como na busca exata (vale o de menor id).
+     */
+    private Optional<Livro> resolverAproximado(String titulo) {
+        String alvo = SugestoesTitulos.normalizar(titulo);
+        if (alvo.isEmpty()) return Optional.empty();
+        var achados = titulosAproximados.buscar(alvo, alvo.length() <= 3 ? 1 : 2);
+        if (achados.isEmpty()) return Optional.empty();
+
+        int melhor = achados.get(0).distancia();
+        if (achados.size() > 1 && achados.get(1).distancia() == melhor) {
+            var candidatos = new ArrayList<Livro>();
+            for (var a : achados) {
+                // só os empatados na melhor distância (achados vêm do mais perto ao mais longe)
+                if (candidatos.size() == 10 || a.distancia() != melhor) break;
+                repo.buscarPorId(Collections.min(a.ids())).ifPresent(candidatos::add);
+            }
+            throw new TituloAmbiguoException(candidatos);
+        }
+        return repo.buscarPorId(Collections.min(achados.get(0).ids()));
     }
 
     // utils
+    private ReentrantLock stripe(int idLivro) {
+        return stripes[indiceStripe(idLivro)];
+    }
+
+    private static int indiceStripe(int idLivro) {
+        // ids são sequenciais, então o módulo já espalha bem
+        return Math.floorMod(idLivro, STRIPES);
+    }
+
     private static boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
@@ -193,11 +386,4 @@ public class LivroService {
     private static String safeTrim(String s) {
         return s == null ? "" : s.trim();
     }
-
-    private static String norm(String s) {
-        if (s == null) return "";
-        return s.trim()
-                .replaceAll("\\s+", " ")
-                .toLowerCase(Locale.ROOT);
-    }
 }
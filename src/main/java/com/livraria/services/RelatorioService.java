@@ -0,0 +1,68 @@
+package com.livraria.services;
+
+import com.livraria.services.relatorio.DecodificadorEvento;
+import com.livraria.services.relatorio.Evento;
+import com.livraria.services.relatorio.EventoStore;
+import com.livraria.services.relatorio.ExportadorRelatorio;
+import com.livraria.services.relatorio.RankingVendas;
+import com.livraria.utils.LogSegmentos;
+import com.livraria.utils.LoggerUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Consultas do relatório de ações, servidas pelo {@link EventoStore} residente.
+ */
+public class RelatorioService {
+    private final EventoStore store;
+    private final RankingVendas ranking;
+
+    public RelatorioService() {
+        this(EventoStore.instancia(), RankingVendas.instancia());
+    }
+
+    public RelatorioService(EventoStore store, RankingVendas ranking) {
+        this.store = store;
+        this.ranking = ranking;
+    }
+
+    public EventoStore.Resultado listar(EventoStore.Filtro filtro, int page, int size) throws IOException {
+        return listar(filtro, page, size, null);
+    }
+
+    /** cursor nulo = paginação por página; senão continua de onde o cursor aponta. */
+    public EventoStore.Resultado listar(EventoStore.Filtro filtro, int page, int size, String cursor) throws IOException {
+        store.sincronizar();
+        return store.consultar(filtro, page, size, cursor);
+    }
+
+    /** Os k livros mais vendidos em [de, ate] (nulos = sem limite), por unidades ou receita. */
+    public List<RankingVendas.Item> ranking(RankingVendas.Criterio criterio, int k, LocalDate de, LocalDate ate) throws IOException {
+        store.sincronizar();
+        return ranking.top(criterio, k, de, ate);
+    }
+
+    /** Histórico de compras de um cliente, pelo índice de clientes do store. */
+    public List<Evento> comprasDoCliente(String nome) throws IOException {
+        store.sincronizar();
+        return store.comprasDoCliente(nome);
+    }
+
+    /**
+     * Exporta todos os eventos que passam no filtro, lendo direto dos segmentos do
+     * log (só os que cruzam de/ate) e escrevendo conforme lê: memória constante.
+     */
+    public long exportar(EventoStore.Filtro filtro, ExportadorRelatorio.Formato formato, OutputStream out) throws IOException {
+        LoggerUtils.descarregar();
+        try (var linhas = LogSegmentos.instancia().linhas(filtro.de(), filtro.ate())) {
+            // o filtro roda sobre a linha decodificada; só quem passa vira Evento
+            var d = new DecodificadorEvento();
+            var eventos = linhas.filter(l -> d.decodificar(l) && d.aceita(filtro))
+                    .map(l -> d.evento());
+            return ExportadorRelatorio.escrever(eventos, formato, out);
+        }
+    }
+}
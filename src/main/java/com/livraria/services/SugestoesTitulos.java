@@ -0,0 +1,232 @@
+package com.livraria.services;
+
+import com.livraria.models.Livro;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Autocompletar de títulos para o formulário de compra.
+ * <p>
+ * Os títulos normalizados (sem acento, minúsculas, espaços colapsados) ficam num
+ * array ordenado: os que começam com o prefixo são uma faixa contígua, achada com
+ * duas buscas binárias. Sobre o estoque, na mesma ordem, fica uma árvore de
+ * segmentos de máximo; os N de maior estoque da faixa saem com N consultas
+ * O(log n), quebrando a faixa em volta de cada escolhido. A consulta não cria
+ * estrutura nenhuma: os intervalos em aberto ficam num buffer por thread.
+ * <p>
+ * Compras só mexem no estoque (atualização pontual na árvore); incluir, excluir ou
+ * renomear livro marca o array como desatualizado e a próxima consulta o refaz a
+ * partir do catálogo.
+ */
+final class SugestoesTitulos {
+
+    static final int MAX_SUGESTOES = 20;
+
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    // intervalos em aberto da extração: início, fim e posição do máximo de cada um
+    private static final ThreadLocal<int[]> BUFFER =
+            ThreadLocal.withInitial(() -> new int[3 * (2 * MAX_SUGESTOES + 1)]);
+
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private final Supplier<List<Livro>> catalogo;
+    private boolean desatualizado = true;
+
+    // ordenados por título normalizado (empate: id)
+    private String[] titulos = new String[0];
+    private int[] ids = new int[0];
+    private int[] estoques = new int[0];
+    private final Map<Integer, Integer> posicaoDoId = new HashMap<>();
+    // árvore de segmentos (folhas em [folhas, 2 * folhas)): cada nó guarda a posição do maior estoque
+    private int[] arvore = new int[0];
+    private int folhas;
+
+    SugestoesTitulos(Supplier<List<Livro>> catalogo) {
+        this.catalogo = catalogo;
+    }
+
+    /** Livro incluído ou alterado: se o título não mudou, só atualiza o estoque. */
+    void colocar(Livro l) {
+        rw.writeLock().lock();
+        try {
+            if (desatualizado) return;
+            Integer p = posicaoDoId.get(l.getId());
+            if (p == null || !titulos[p].equals(normalizar(l.getTitulo()))) {
+                desatualizado = true;
+            } else {
+                atualizarEstoque(p, l.getQuantidade());
+            }
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    void remover(int id) {
+        rw.writeLock().lock();
+        try {
+            desatualizado = true;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids de até {@code n} livros cujo título normalizado começa com o prefixo
+     * (também normalizado), do maior para o menor estoque; no empate, ordem
+     * alfabética. Devolve quantos foram escritos em {@code saida}.
+     */
+    int sugerir(String prefixo, int n, int[] saida) {
+        String p = normalizar(prefixo);
+        n = Math.min(n, Math.min(MAX_SUGESTOES, saida.length));
+        if (desatualizadoAgora()) reconstruir();
+        rw.readLock().lock();
+        try {
+            int lo = primeiroMaiorOuIgual(p);
+            int hi = primeiroSemPrefixo(lo, p);
+            if (lo >= hi || n <= 0) return 0;
+
+            int[] buf = BUFFER.get();
+            int abertos = 0;
+            abertos = abrir(buf, abertos, lo, hi);
+            int escritos = 0;
+            while (escritos < n && abertos > 0) {
+                // o intervalo aberto com o maior máximo
+                int melhor = 0;
+                for (int i = 1; i < abertos; i++) {
+                    if (antes(buf[3 * i + 2], buf[3 * melhor + 2])) melhor = i;
+                }
+                int ini = buf[3 * melhor], fim = buf[3 * melhor + 1], pos = buf[3 * melhor + 2];
+                saida[escritos++] = ids[pos];
+                // tira o escolhido e abre os dois lados dele
+                abertos--;
+                buf[3 * melhor] = buf[3 * abertos];
+                buf[3 * melhor + 1] = buf[3 * abertos + 1];
+                buf[3 * melhor + 2] = buf[3 * abertos + 2];
+                abertos = abrir(buf, abertos, ini, pos);
+                abertos = abrir(buf, abertos, pos + 1, fim);
+            }
+            return escritos;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    /** Sem acentos, minúsculas, trim e espaços colapsados. */
+    static String normalizar(String s) {
+        return ESPACOS.matcher(IndiceBusca.dobrar(s).trim()).replaceAll(" ");
+    }
+
+    // --- helpers
+
+    private int abrir(int[] buf, int abertos, int ini, int fim) {
+        if (ini >= fim) return abertos;
+        buf[3 * abertos] = ini;
+        buf[3 * abertos + 1] = fim;
+        buf[3 * abertos + 2] = maximo(ini, fim);
+        return abertos + 1;
+    }
+
+    /** Posição do maior estoque em [ini, fim). */
+    private int maximo(int ini, int fim) {
+        int melhor = -1;
+        for (int l = ini + folhas, r = fim + folhas; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) melhor = melhorEntre(melhor, arvore[l++]);
+            if ((r & 1) == 1) melhor = melhorEntre(melhor, arvore[--r]);
+        }
+        return melhor;
+    }
+
+    private int melhorEntre(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return antes(b, a) ? b : a;
+    }
+
+    /** A posição a vem antes de b na sugestão: mais estoque, ou mesmo estoque e título antes. */
+    private boolean antes(int a, int b) {
+        return estoques[a] > estoques[b] || estoques[a] == estoques[b] && a < b;
+    }
+
+    private void atualizarEstoque(int pos, int quantidade) {
+        estoques[pos] = quantidade;
+        for (int no = (pos + folhas) >> 1; no >= 1; no >>= 1) {
+            arvore[no] = melhorEntre(arvore[2 * no], arvore[2 * no + 1]);
+        }
+    }
+
+    private int primeiroMaiorOuIgual(String chave) {
+        int lo = 0, hi = titulos.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (titulos[mid].compareTo(chave) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Os que começam com o prefixo são contíguos a partir de lo: o primeiro depois deles. */
+    private int primeiroSemPrefixo(int lo, String prefixo) {
+        int hi = titulos.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (titulos[mid].startsWith(prefixo)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private boolean desatualizadoAgora() {
+        rw.readLock().lock();
+        try {
+            return desatualizado;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    private void reconstruir() {
+        rw.writeLock().lock();
+        try {
+            // o catálogo é lido sob o lock: uma alteração que termine depois da
+            // leitura espera e é aplicada em cima
+            if (!desatualizado) return;
+            var livros = catalogo.get().toArray(Livro[]::new);
+            var chaves = new String[livros.length];
+            var ordem = new Integer[livros.length];
+            for (int i = 0; i < livros.length; i++) {
+                chaves[i] = normalizar(livros[i].getTitulo());
+                ordem[i] = i;
+            }
+            Arrays.sort(ordem, Comparator.<Integer, String>comparing(i -> chaves[i])
+                    .thenComparingInt(i -> livros[i].getId()));
+
+            int n = livros.length;
+            titulos = new String[n];
+            ids = new int[n];
+            estoques = new int[n];
+            posicaoDoId.clear();
+            for (int p = 0; p < n; p++) {
+                var l = livros[ordem[p]];
+                titulos[p] = chaves[ordem[p]];
+                ids[p] = l.getId();
+                estoques[p] = l.getQuantidade();
+                posicaoDoId.put(l.getId(), p);
+            }
+            folhas = Math.max(1, Integer.highestOneBit(Math.max(1, n - 1)) << 1);
+            arvore = new int[2 * folhas];
+            Arrays.fill(arvore, -1);
+            for (int p = 0; p < n; p++) arvore[folhas + p] = p;
+            for (int no = folhas - 1; no >= 1; no--) arvore[no] = melhorEntre(arvore[2 * no], arvore[2 * no + 1]);
+            desatualizado = false;
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+}
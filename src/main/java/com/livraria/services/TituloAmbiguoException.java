@@ -0,0 +1,24 @@
+package com.livraria.services;
+
+import com.livraria.models.Livro;
+
+import java.util.List;
+
+/**
+ * A compra com título aproximado achou mais de um título igualmente perto do
+ * digitado: nada foi comprado e os candidatos vão na resposta (HTTP 409).
+ */
+public class TituloAmbiguoException extends RuntimeException {
+
+    private final List<Livro> candidatos;
+
+    public TituloAmbiguoException(List<Livro> candidatos) {
+        super("Título ambíguo; você quis dizer: "
+                + String.join(", ", candidatos.stream().map(Livro::getTitulo).toList()) + "?");
+        this.candidatos = candidatos;
+    }
+
+    public List<Livro> getCandidatos() {
+        return candidatos;
+    }
+}
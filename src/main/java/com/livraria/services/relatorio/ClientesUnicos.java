@@ -0,0 +1,47 @@
+package com.livraria.services.relatorio;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Clientes distintos que compraram, por dia: um {@link HyperLogLog} por dia,
+ * alimentado pelos eventos COMPRA conforme entram no {@link EventoStore}. Um período
+ * junta os esboços dos seus dias, então a consulta custa O(dias) e a memória não
+ * cresce com o número de clientes. Não tem lock próprio: só é usado pelo store,
+ * sob o lock dele.
+ * <p>
+ * Fica só em memória (a carga inicial do store relê o log inteiro de qualquer jeito).
+ */
+final class ClientesUnicos implements EventoListener {
+
+    private final TreeMap<LocalDate, HyperLogLog> porDia = new TreeMap<>();
+    private HyperLogLog semData = new HyperLogLog(); // COMPRA sem data entra em qualquer período
+
+    @Override
+    public void aoAdicionar(int indice, Evento e) {
+        if (!"COMPRA".equals(e.tipo()) || e.cliente().isEmpty()) return;
+        var esboco = e.timestamp() == null ? semData
+                : porDia.computeIfAbsent(e.timestamp().toLocalDate(), d -> new HyperLogLog());
+        esboco.adicionar(e.cliente());
+    }
+
+    @Override
+    public void limpar() {
+        porDia.clear();
+        semData = new HyperLogLog();
+    }
+
+    /** Estimativa de clientes distintos com COMPRA em [de, ate] (nulos = sem limite). */
+    long estimar(LocalDate de, LocalDate ate) {
+        var dias = de == null && ate == null ? porDia
+                : de == null ? porDia.headMap(ate, true)
+                : ate == null ? porDia.tailMap(de, true)
+                : de.isAfter(ate) ? Map.<LocalDate, HyperLogLog>of()
+                : porDia.subMap(de, true, ate, true);
+        var uniao = new HyperLogLog();
+        for (var esboco : dias.values()) uniao.juntar(esboco);
+        uniao.juntar(semData);
+        return uniao.estimar();
+    }
+}
@@ -0,0 +1,383 @@
+package com.livraria.services.relatorio;
+
+import com.livraria.models.LogEntry;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Decodificador reutilizável de linhas "timestamp - TIPO|chave=valor|...".
+ * Entende também o formato antigo do log ("AÇÃO: Compra | Livro: 'x' | ...",
+ * "CRIAÇÃO: Livro 'x' (id=1), qtd=2)" etc.): o primeiro token da mensagem decide
+ * qual dos dois ler, na mesma passada. No antigo o tipo vira o do formato novo
+ * (COMPRA, CRIACAO, ...), para os filtros e agregados tratarem os dois igual.
+ * <p>
+ * {@link #decodificar(String)} só marca onde cada campo começa e termina na linha
+ * (índices), reconhecendo as chaves conhecidas sem criar substrings, e lê o
+ * timestamp dígito a dígito. {@link #aceita(EventoStore.Filtro)} testa o filtro
+ * direto nesses trechos; o {@link Evento} só é montado em {@link #evento()}, para
+ * as linhas que passaram.
+ * <p>
+ * Uma instância guarda o estado da última linha: não é thread-safe, cada thread
+ * usa a sua.
+ */
+public final class DecodificadorEvento {
+
+    private static final String[] CHAVES = {"cliente", "livro", "qtd", "antes", "depois", "preco"};
+    private static final int CLIENTE = 0, LIVRO = 1, QTD = 2, ANTES = 3, DEPOIS = 4, PRECO = 5;
+
+    // prefixos do formato antigo
+    private static final String ACAO = "AÇÃO:", CRIACAO = "CRIAÇÃO:", ATUALIZACAO = "ATUALIZAÇÃO:",
+            EXCLUSAO = "EXCLUSÃO:", BLOQUEADA = "TENTATIVA EXCLUSÃO BLOQUEADA:";
+
+    private String linha;
+    private int msgIni, msgFim;
+    private int tipoIni, tipoFim;
+    private String tipoLegado; // tipo das linhas no formato antigo; null no formato novo
+    // início/fim (sem espaços) do valor de cada chave conhecida; ini = -1 quando ausente
+    private final int[] valIni = new int[CHAVES.length];
+    private final int[] valFim = new int[CHAVES.length];
+
+    // timestamp: dia como aaaammdd (0 = sem data) e as partes, para montar sem reparsear
+    private int dia;
+    private int hora, minuto, segundo, nano;
+    private LocalDateTime tsLento; // formatos ISO fora do caminho rápido (ex.: sem segundos)
+
+    /**
+     * Decodifica a linha. Devolve false se ela não é um evento (sem " - ", ou a
+     * mensagem é só '|'), e nesse caso o resto da instância não vale.
+     */
+    public boolean decodificar(String line) {
+        int sep = line.indexOf(" - ");
+        if (sep < 0) return false;
+        this.linha = line;
+
+        msgIni = pularEspacos(sep + 3, line.length());
+        msgFim = recuarEspacos(msgIni, line.length());
+        if (soBarras(msgIni, msgFim)) return false;
+
+        lerTimestamp(pularEspacos(0, sep), recuarEspacos(0, sep));
+
+        limparCampos();
+        if (lerLegado()) return true;
+
+        int p = indiceBarra(msgIni, msgFim);
+        tipoIni = pularEspacos(msgIni, p);
+        tipoFim = recuarEspacos(tipoIni, p);
+        while (p < msgFim) {
+            int ini = p + 1;
+            p = indiceBarra(ini, msgFim);
+            int eq = indiceIgual(ini, p);
+            if (eq <= ini) continue; // sem '=' ou '=' no começo do trecho
+            int k = chave(pularEspacos(ini, eq), recuarEspacos(ini, eq));
+            if (k < 0) continue;
+            valIni[k] = pularEspacos(eq + 1, p);
+            valFim[k] = recuarEspacos(valIni[k], p);
+        }
+        return true;
+    }
+
+    /** Mesmo critério de {@link EventoStore.Filtro#aceita(Evento)}, sem montar o evento. */
+    public boolean aceita(EventoStore.Filtro f) {
+        if (dia != 0) {
+            if (f.de() != null && dia < aaaammdd(f.de())) return false;
+            if (f.ate() != null && dia > aaaammdd(f.ate())) return false;
+        }
+        if (!f.tipo().isEmpty() && !tipoIgual(f.tipo(), true)) return false;
+        if (!f.cliente().isEmpty() && !contemIgnorandoCaixa(CLIENTE, f.cliente())) return false;
+        return f.livro().isEmpty() || contemIgnorandoCaixa(LIVRO, f.livro());
+    }
+
+    /** Monta o evento da última linha decodificada. */
+    public Evento evento() {
+        boolean temEstoque = valIni[ANTES] >= 0 && valIni[DEPOIS] >= 0;
+        return new Evento(timestamp(), tipoLegado != null ? tipoLegado : linha.substring(tipoIni, tipoFim),
+                texto(CLIENTE), texto(LIVRO), inteiro(QTD),
+                temEstoque ? inteiro(ANTES) : null,
+                temEstoque ? inteiro(DEPOIS) : null,
+                preco(), linha.substring(msgIni, msgFim));
+    }
+
+    /** A última linha como {@link LogEntry}: campos ausentes ficam nulos. */
+    public LogEntry entrada() {
+        boolean temEstoque = valIni[ANTES] >= 0 && valIni[DEPOIS] >= 0;
+        return new LogEntry(timestamp(), tipoEntrada(),
+                valIni[CLIENTE] < 0 ? null : texto(CLIENTE),
+                valIni[LIVRO] < 0 ? null : texto(LIVRO),
+                valIni[QTD] < 0 ? null : inteiro(QTD),
+                temEstoque ? inteiro(ANTES) : null,
+                temEstoque ? inteiro(DEPOIS) : null,
+                linha.substring(msgIni, msgFim));
+    }
+
+    public LocalDateTime timestamp() {
+        if (tsLento != null) return tsLento;
+        if (dia == 0) return null;
+        return LocalDateTime.of(dia / 10000, dia / 100 % 100, dia % 100, hora, minuto, segundo, nano);
+    }
+
+    // ----------------------------------------------------------------- campos
+
+    private String texto(int k) {
+        return valIni[k] < 0 ? "" : linha.substring(valIni[k], valFim[k]);
+    }
+
+    private int inteiro(int k) {
+        if (valIni[k] < 0) return 0;
+        try {
+            return Integer.parseInt(linha, valIni[k], valFim[k], 10);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** preco=%.2f sai com vírgula ou ponto conforme o locale de quem gravou. */
+    private Double preco() {
+        if (valIni[PRECO] < 0) return null;
+        try {
+            return Double.parseDouble(linha.substring(valIni[PRECO], valFim[PRECO]).replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private LogEntry.Tipo tipoEntrada() {
+        for (var t : LogEntry.Tipo.values()) {
+            if (t != LogEntry.Tipo.DESCONHECIDO && tipoIgual(t.name(), false)) return t;
+        }
+        return LogEntry.Tipo.DESCONHECIDO;
+    }
+
+    private boolean tipoIgual(String tipo, boolean ignorarCaixa) {
+        if (tipoLegado != null) return ignorarCaixa ? tipoLegado.equalsIgnoreCase(tipo) : tipoLegado.equals(tipo);
+        return tipoFim - tipoIni == tipo.length() && linha.regionMatches(ignorarCaixa, tipoIni, tipo, 0, tipo.length());
+    }
+
+    private boolean contemIgnorandoCaixa(int k, String trecho) {
+        if (valIni[k] < 0) return false;
+        int ultimo = valFim[k] - trecho.length();
+        for (int i = valIni[k]; i <= ultimo; i++) {
+            if (linha.regionMatches(true, i, trecho, 0, trecho.length())) return true;
+        }
+        return false;
+    }
+
+    private int chave(int ini, int fim) {
+        int len = fim - ini;
+        for (int k = 0; k < CHAVES.length; k++) {
+            if (CHAVES[k].length() == len && linha.regionMatches(true, ini, CHAVES[k], 0, len)) return k;
+        }
+        return -1;
+    }
+
+    // ----------------------------------------------------------------- formato antigo
+
+    /**
+     * "AÇÃO: Compra | Livro: 'x' | Cliente: y | Qtd: 1 | Estoque: 5 -> 4",
+     * "CRIAÇÃO: Livro 'x' (id=1), qtd=2)", "ATUALIZAÇÃO: Livro id=1 agora qtd=3",
+     * "EXCLUSÃO: Livro id=1 removido..." e "TENTATIVA EXCLUSÃO BLOQUEADA: ...".
+     * Se a linha começa como uma delas mas não fecha, não é do formato antigo: volta
+     * tudo e ela é lida como TIPO|chave=valor.
+     */
+    private boolean lerLegado() {
+        String tipo;
+        boolean ok;
+        if (linha.startsWith(ACAO, msgIni)) {
+            tipo = "COMPRA";
+            ok = lerCompraLegada(msgIni + ACAO.length());
+        } else if (linha.startsWith(CRIACAO, msgIni)) {
+            tipo = "CRIACAO";
+            ok = lerCriacaoLegada(msgIni + CRIACAO.length());
+        } else if (linha.startsWith(ATUALIZACAO, msgIni)) {
+            tipo = "ATUALIZACAO";
+            ok = lerQtdLegada(msgIni + ATUALIZACAO.length());
+        } else if (linha.startsWith(EXCLUSAO, msgIni)) {
+            tipo = "EXCLUSAO";
+            ok = lerExclusaoLegada(msgIni + EXCLUSAO.length());
+        } else if (linha.startsWith(BLOQUEADA, msgIni)) {
+            tipo = "BLOQUEADA";
+            ok = true;
+        } else {
+            return false;
+        }
+        if (!ok) {
+            limparCampos();
+            return false;
+        }
+        tipoLegado = tipo;
+        return true;
+    }
+
+    private boolean lerCompraLegada(int p) {
+        p = pularEspacos(p, msgFim);
+        if (!linha.startsWith("Compra", p)) return false;
+        p = indiceBarra(p, msgFim);
+        while (p < msgFim) {
+            int ini = pularEspacos(p + 1, msgFim);
+            p = indiceBarra(ini, msgFim);
+            int fim = recuarEspacos(ini, p);
+            if (linha.startsWith("Livro:", ini)) {
+                int a = linha.indexOf('\'', ini);
+                if (a < 0 || a >= fim - 1 || linha.charAt(fim - 1) != '\'' || fim - 1 == a + 1) return false;
+                marcar(LIVRO, a + 1, fim - 1);
+            } else if (linha.startsWith("Cliente:", ini)) {
+                marcar(CLIENTE, ini + 8, fim);
+            } else if (linha.startsWith("Qtd:", ini)) {
+                marcar(QTD, ini + 4, fim);
+            } else if (linha.startsWith("Estoque:", ini)) {
+                int seta = linha.indexOf("->", ini);
+                if (seta < 0 || seta >= fim) return false;
+                marcar(ANTES, ini + 8, seta);
+                marcar(DEPOIS, seta + 2, fim);
+            }
+        }
+        return valIni[LIVRO] >= 0 && valIni[CLIENTE] >= 0 && valFim[CLIENTE] > valIni[CLIENTE]
+                && soDigitos(QTD) && soDigitos(ANTES) && soDigitos(DEPOIS);
+    }
+
+    private boolean lerCriacaoLegada(int p) {
+        p = pularEspacos(p, msgFim);
+        if (!linha.startsWith("Livro", p)) return false;
+        int a = linha.indexOf('\'', p);
+        int b = a < 0 ? -1 : linha.indexOf('\'', a + 1);
+        if (b < 0 || b >= msgFim || b == a + 1) return false;
+        marcar(LIVRO, a + 1, b);
+        int q = linha.indexOf("qtd=", b);
+        int fecha = q < 0 ? -1 : linha.indexOf(')', q);
+        if (fecha < 0 || fecha >= msgFim) return false;
+        marcar(QTD, q + 4, fecha);
+        return soDigitos(QTD);
+    }
+
+    private boolean lerQtdLegada(int p) {
+        int q = linha.indexOf("qtd=", p);
+        if (q < 0 || q >= msgFim) return false;
+        marcar(QTD, q + 4, msgFim);
+        return soDigitos(QTD);
+    }
+
+    private boolean lerExclusaoLegada(int p) {
+        p = pularEspacos(p, msgFim);
+        if (!linha.startsWith("Livro", p)) return false;
+        p = pularEspacos(p + 5, msgFim);
+        if (!linha.startsWith("id=", p)) return false;
+        p += 3;
+        int fim = p;
+        while (fim < msgFim && linha.charAt(fim) >= '0' && linha.charAt(fim) <= '9') fim++;
+        return fim > p && linha.startsWith("removido", pularEspacos(fim, msgFim));
+    }
+
+    private void marcar(int k, int ini, int fim) {
+        valIni[k] = pularEspacos(ini, fim);
+        valFim[k] = recuarEspacos(valIni[k], fim);
+    }
+
+    private boolean soDigitos(int k) {
+        if (valIni[k] < 0 || valFim[k] == valIni[k]) return false;
+        for (int i = valIni[k]; i < valFim[k]; i++) {
+            char c = linha.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private void limparCampos() {
+        tipoLegado = null;
+        for (int k = 0; k < CHAVES.length; k++) valIni[k] = -1;
+    }
+
+    // ----------------------------------------------------------------- timestamp
+
+    /** aaaa-MM-ddTHH:mm:ss[.fração]; o que fugir disso vai para LocalDateTime.parse. */
+    private void lerTimestamp(int ini, int fim) {
+        dia = 0;
+        tsLento = null;
+        int len = fim - ini;
+        boolean rapido = (len == 19 || (len >= 21 && len <= 29 && linha.charAt(ini + 19) == '.'))
+                && linha.charAt(ini + 4) == '-' && linha.charAt(ini + 7) == '-' && linha.charAt(ini + 10) == 'T'
+                && linha.charAt(ini + 13) == ':' && linha.charAt(ini + 16) == ':';
+        if (!rapido) {
+            lerTimestampLento(ini, fim);
+            return;
+        }
+        int ano = digitos(ini, 4), mes = digitos(ini + 5, 2), d = digitos(ini + 8, 2);
+        int h = digitos(ini + 11, 2), m = digitos(ini + 14, 2), s = digitos(ini + 17, 2);
+        int fracao = 0;
+        for (int i = ini + 20; i < fim; i++) {
+            int c = linha.charAt(i) - '0';
+            if (c < 0 || c > 9) { fracao = -1; break; }
+            fracao = fracao * 10 + c;
+        }
+        if (ano < 0 || mes < 1 || mes > 12 || d < 1 || h < 0 || h > 23 || m < 0 || m > 59
+                || s < 0 || s > 59 || fracao < 0 || d > diasNoMes(ano, mes)) {
+            return; // data inválida: LocalDateTime.parse também recusaria
+        }
+        for (int i = len; i < 29 && len > 19; i++) fracao *= 10; // completa até 9 casas (nanos)
+        dia = ano * 10000 + mes * 100 + d;
+        hora = h;
+        minuto = m;
+        segundo = s;
+        nano = fracao;
+    }
+
+    private void lerTimestampLento(int ini, int fim) {
+        try {
+            tsLento = LocalDateTime.parse(linha.substring(ini, fim));
+            dia = aaaammdd(tsLento.toLocalDate());
+        } catch (DateTimeParseException e) {
+            // sem data: o evento entra mesmo assim, com timestamp nulo
+        }
+    }
+
+    private int digitos(int ini, int n) {
+        int v = 0;
+        for (int i = ini; i < ini + n; i++) {
+            int c = linha.charAt(i) - '0';
+            if (c < 0 || c > 9) return -1;
+            v = v * 10 + c;
+        }
+        return v;
+    }
+
+    private static int diasNoMes(int ano, int mes) {
+        return switch (mes) {
+            case 2 -> (ano % 4 == 0 && (ano % 100 != 0 || ano % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static int aaaammdd(LocalDate d) {
+        return d.getYear() * 10000 + d.getMonthValue() * 100 + d.getDayOfMonth();
+    }
+
+    // ----------------------------------------------------------------- varredura
+
+    private int indiceBarra(int de, int ate) {
+        for (int i = de; i < ate; i++) if (linha.charAt(i) == '|') return i;
+        return ate;
+    }
+
+    private int indiceIgual(int de, int ate) {
+        for (int i = de; i < ate; i++) if (linha.charAt(i) == '=') return i;
+        return -1;
+    }
+
+    private boolean soBarras(int de, int ate) {
+        if (de == ate) return false;
+        for (int i = de; i < ate; i++) if (linha.charAt(i) != '|') return false;
+        return true;
+    }
+
+    // mesmo critério de String.trim(): tudo <= ' ' é espaço
+    private int pularEspacos(int de, int ate) {
+        while (de < ate && linha.charAt(de) <= ' ') de++;
+        return de;
+    }
+
+    private int recuarEspacos(int de, int ate) {
+        while (ate > de && linha.charAt(ate - 1) <= ' ') ate--;
+        return ate;
+    }
+}
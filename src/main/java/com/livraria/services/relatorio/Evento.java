@@ -0,0 +1,25 @@
+package com.livraria.services.relatorio;
+
+import java.time.LocalDateTime;
+
+/**
+ * Uma linha do log de ações já interpretada, como o relatório mostra.
+ * timestamp é nulo quando a linha não tinha data válida; estoqueAntes/Depois
+ * só vêm preenchidos quando a linha tinha os dois; preco (unitário) só nas linhas
+ * que o registram.
+ */
+public record Evento(LocalDateTime timestamp,
+                     String tipo,
+                     String cliente,
+                     String livro,
+                     int quantidade,
+                     Integer estoqueAntes,
+                     Integer estoqueDepois,
+                     Double preco,
+                     String mensagem) {
+
+    /** Valor da venda (quantidade x preço), ou 0 se a linha não tem preço. */
+    public double receita() {
+        return preco == null ? 0 : quantidade * preco;
+    }
+}
@@ -0,0 +1,23 @@
+package com.livraria.services.relatorio;
+
+/**
+ * Estrutura derivada dos eventos do log (agregados, índices...) mantida pelo
+ * {@link EventoStore}: recebe cada evento novo na thread que sincroniza, com o
+ * store travado para escrita, então não precisa de sincronização própria para isso.
+ */
+public interface EventoListener {
+
+    /** Evento de posição {@code indice} acabou de entrar no store. */
+    void aoAdicionar(int indice, Evento e);
+
+    /**
+     * Chamado ao fim de cada sincronização com o total de eventos. Se devolver true,
+     * o store chama {@link #limpar()} e reenvia todos os eventos desde o primeiro.
+     */
+    default boolean precisaReprocessar(int total) {
+        return false;
+    }
+
+    default void limpar() {
+    }
+}
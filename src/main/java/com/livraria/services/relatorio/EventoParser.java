@@ -0,0 +1,29 @@
+package com.livraria.services.relatorio;
+
+import java.util.function.Function;
+
+/**
+ * Interpreta uma linha do log de ações, "timestamp - TIPO|chave=valor|...".
+ * Usado pelo {@link EventoStore} e pela exportação, para os dois enxergarem
+ * exatamente os mesmos eventos; quem percorre muitas linhas e filtra antes de
+ * montar o evento usa um {@link DecodificadorEvento} direto.
+ */
+public final class EventoParser {
+
+    private EventoParser() {}
+
+    /** Evento da linha, ou null se ela não tem o separador " - " (não é evento). */
+    public static Evento interpretar(String line) {
+        var d = new DecodificadorEvento();
+        return d.decodificar(line) ? d.evento() : null;
+    }
+
+    /**
+     * Mesmo que {@link #interpretar}, reaproveitando um decodificador só para todas as
+     * linhas: para quem lê muitas em sequência numa thread (uma unidade da carga, o seguidor).
+     */
+    public static Function<String, Evento> interpretador() {
+        var d = new DecodificadorEvento();
+        return line -> d.decodificar(line) ? d.evento() : null;
+    }
+}
@@ -0,0 +1,420 @@
+package com.livraria.services.relatorio;
+
+import com.livraria.shared.utils.DurableWriter;
+import com.livraria.shared.utils.Paths;
+import com.livraria.utils.LogSegmentos;
+import com.livraria.utils.LoggerUtils;
+import com.livraria.utils.ScannerParalelo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Eventos do log de ações mantidos em memória para o relatório.
+ * <p>
+ * Na primeira consulta lê o histórico inteiro (segmentos + ativo), interpretando os
+ * arquivos em paralelo (ver {@link ScannerParalelo}); depois cada {@link #sincronizar()}
+ * só interpreta as linhas anexadas desde a anterior, seguindo as rotações (ver
+ * {@link LogSegmentos.Seguidor}).
+ * <p>
+ * Os eventos ficam em colunas de tipos primitivos; tipo, cliente e livro viram ids
+ * de um dicionário (os valores se repetem muito), então o filtro por tipo testa
+ * cada valor distinto uma vez só por consulta.
+ * <p>
+ * Estruturas derivadas (agregados, índices) se penduram como {@link EventoListener}
+ * e são atualizadas na mesma passada da ingestão. Os filtros por cliente e livro
+ * usam um {@link IndiceTrigramas} de cada campo: viram a lista das posições que
+ * casam antes de qualquer evento ser olhado.
+ */
+public final class EventoStore {
+
+    private static final EventoStore INSTANCIA =
+            new EventoStore(LogSegmentos.instancia(), new RollupsDiarios(Paths.LOG_ROLLUPS));
+
+    public static EventoStore instancia() {
+        return INSTANCIA;
+    }
+
+    private static final long SEM_DATA = Long.MIN_VALUE;
+    private static final int SEM_VALOR = Integer.MIN_VALUE;
+
+    private final LogSegmentos segmentos;
+    private LogSegmentos.Seguidor seguidor; // nulo até a carga inicial
+    private final Function<String, Evento> interpretarNovas = EventoParser.interpretador(); // só com o write lock
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+
+    // colunas
+    private int n;
+    private long fimLog;                         // offset lógico do fim do que já foi lido (ver cursor)
+    private long[] offsets = new long[1024];     // offset lógico de cada evento, crescente
+    private long[] instantes = new long[1024];   // epoch em nanos (UTC do LocalDateTime), ou SEM_DATA
+    private int[] tipos = new int[1024];
+    private int[] clientes = new int[1024];
+    private int[] livros = new int[1024];
+    private int[] quantidades = new int[1024];
+    private int[] antes = new int[1024];         // SEM_VALOR quando a linha não tinha antes/depois
+    private int[] depois = new int[1024];
+    private double[] precos = new double[1024];  // NaN quando a linha não tem preço
+    private String[] mensagens = new String[1024];
+
+    // dicionário de textos repetidos (id 0 = "")
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> textos = new ArrayList<>();
+    private int idCompra;
+
+    private final List<EventoListener> listeners = new CopyOnWriteArrayList<>();
+    private final RollupsDiarios rollups;
+    private final IndiceTrigramas indiceClientes = new IndiceTrigramas(Evento::cliente);
+    private final IndiceTrigramas indiceLivros = new IndiceTrigramas(Evento::livro);
+    private final ClientesUnicos clientesUnicos = new ClientesUnicos();
+
+    EventoStore(LogSegmentos segmentos, RollupsDiarios rollups) {
+        this.segmentos = segmentos;
+        this.rollups = rollups;
+        id("");
+        idCompra = id("COMPRA");
+        listeners.add(rollups);
+        listeners.add(indiceClientes);
+        listeners.add(indiceLivros);
+        listeners.add(clientesUnicos);
+    }
+
+    /**
+     * Registra uma estrutura derivada dos eventos. Ela recebe primeiro todos os
+     * eventos que já estão no store e depois cada novo, na ordem.
+     */
+    public void adicionarListener(EventoListener l) {
+        rw.writeLock().lock();
+        try {
+            for (int i = 0; i < n; i++) l.aoAdicionar(i, evento(i));
+            listeners.add(l);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /** Traz para a memória o que foi gravado no log desde a última sincronização. */
+    public void sincronizar() throws IOException {
+        LoggerUtils.descarregar(); // inclui ações que ainda estão no buffer do log
+        rw.writeLock().lock();
+        try {
+            if (seguidor == null) {
+                // carga inicial: o grosso do log é interpretado em paralelo e a
+                // ingestão segue a ordem do log; o seguidor continua de onde ela parou
+                seguidor = segmentos.fotografar(null, null, f -> segmentos.seguirDepoisDe(f,
+                        ScannerParalelo.carregarEmOrdem(f, EventoParser::interpretador, this::adicionar)));
+            }
+            seguidor.lerNovas(this::adicionar);
+            for (var l : listeners) {
+                if (l.precisaReprocessar(n)) {
+                    l.limpar();
+                    for (int i = 0; i < n; i++) l.aoAdicionar(i, evento(i));
+                }
+            }
+        } finally {
+            rw.writeLock().unlock();
+        }
+        if (rollups.alteradoDesdeUltimaVez()) {
+            // em segundo plano: a consulta não espera o fsync dos agregados
+            DurableWriter.instancia().agendar(rollups.arquivo(), rollups::linhas)
+                    .exceptionally(e -> {
+                        System.err.println("Erro ao gravar rollups: " + e.getMessage());
+                        return null;
+                    });
+        }
+    }
+
+    /** Carga inicial do histórico numa thread à parte, para não atrasar a subida do servidor. */
+    public void carregarEmSegundoPlano() {
+        var t = new Thread(() -> {
+            try {
+                sincronizar();
+            } catch (IOException e) {
+                System.err.println("Erro ao carregar eventos do log: " + e.getMessage());
+            }
+        }, "relatorio-carga");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public int tamanho() {
+        rw.readLock().lock();
+        try {
+            return n;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    // ----------------------------------------------------------------- consulta
+
+    /** Filtros do relatório; textos vazios = sem filtro, datas nulas = sem limite. */
+    public record Filtro(String tipo, String cliente, String livro, LocalDate de, LocalDate ate) {
+
+        /** Mesmo critério da consulta, para quem percorre eventos fora do store (exportação). */
+        public boolean aceita(Evento e) {
+            if (e.timestamp() != null) {
+                LocalDate dia = e.timestamp().toLocalDate();
+                if (de != null && dia.isBefore(de)) return false;
+                if (ate != null && dia.isAfter(ate)) return false;
+            }
+            if (!tipo.isEmpty() && !e.tipo().equalsIgnoreCase(tipo)) return false;
+            if (!cliente.isEmpty() && !e.cliente().toLowerCase().contains(cliente)) return false;
+            return livro.isEmpty() || e.livro().toLowerCase().contains(livro);
+        }
+    }
+
+    /**
+     * Uma página do relatório. totais é nulo quando calcular custaria varrer o log
+     * inteiro (paginação por cursor com filtro de texto). proximoCursor aponta para
+     * logo depois do último evento da página, ou é nulo se não há mais.
+     */
+    public record Resultado(List<Evento> pagina, RollupsDiarios.Totais totais, boolean hasNext, String proximoCursor) {}
+
+    public Resultado consultar(Filtro f, int page, int size) {
+        return consultar(f, page, size, null);
+    }
+
+    /**
+     * Com cursor, a consulta começa direto no evento onde o cursor aponta (busca
+     * binária nos offsets) e para depois de size + 1 ocorrências; page é ignorado.
+     */
+    public Resultado consultar(Filtro f, int page, int size, String cursor) {
+        rw.readLock().lock();
+        try {
+            boolean[] tipoOk = f.tipo().isEmpty() ? null : casar(t -> t.equalsIgnoreCase(f.tipo()));
+            boolean porTexto = !f.cliente().isEmpty() || !f.livro().isEmpty();
+            long de = f.de() == null ? SEM_DATA : nanos(f.de().atStartOfDay());
+            long ate = f.ate() == null ? SEM_DATA : nanos(f.ate().plusDays(1).atStartOfDay());
+
+            boolean compras = f.tipo().isEmpty() || f.tipo().equalsIgnoreCase("COMPRA");
+            // sem filtro de texto os totais saem dos agregados diários (e os clientes
+            // únicos dos esboços por dia) e a varredura para assim que a página estiver completa
+            RollupsDiarios.Totais totais = !porTexto
+                    ? rollups.totais(f.de(), f.ate(), t -> f.tipo().isEmpty() || t.equalsIgnoreCase(f.tipo()),
+                            compras ? clientesUnicos.estimar(f.de(), f.ate()) : 0)
+                    : null;
+            boolean porCursor = cursor != null;
+            boolean contarTudo = totais == null && !porCursor;
+            // com filtro de texto a varredura já passa por cada compra: os clientes
+            // distintos saem exatos, marcando os ids do dicionário
+            boolean[] comprou = contarTudo ? new boolean[textos.size()] : null;
+            long unicos = 0;
+
+            int inicio = porCursor ? indiceDoCursor(cursor) : 0;
+            // com filtro de texto, só as posições que casam com ele (crescentes)
+            int[] candidatos = !porTexto ? null
+                    : f.livro().isEmpty() ? indiceClientes.contendo(f.cliente())
+                    : f.cliente().isEmpty() ? indiceLivros.contendo(f.livro())
+                    : intersecao(indiceClientes.contendo(f.cliente()), indiceLivros.contendo(f.livro()));
+            int j0 = candidatos == null ? inicio : primeiroMaiorOuIgual(candidatos, inicio);
+            int j1 = candidatos == null ? n : candidatos.length;
+            int from = porCursor ? 0 : Math.max(0, (page - 1) * size);
+            int to = from + size;
+            var pagina = new ArrayList<Evento>(Math.min(size, 256));
+            int total = 0;
+            int ultimo = -1;
+            boolean temMais = false;
+            long itens = 0;
+            double receita = 0;
+            for (int j = j0; j < j1; j++) {
+                int i = candidatos == null ? j : candidatos[j];
+                long ts = instantes[i];
+                if (ts != SEM_DATA) {
+                    if (de != SEM_DATA && ts < de) continue;
+                    if (ate != SEM_DATA && ts >= ate) continue;
+                }
+                if (tipoOk != null && !tipoOk[tipos[i]]) continue;
+
+                if (total >= to) {
+                    temMais = true;
+                    if (!contarTudo) break;
+                } else if (total >= from) {
+                    pagina.add(evento(i));
+                    ultimo = i;
+                }
+                if (contarTudo && tipos[i] == idCompra) {
+                    if (clientes[i] != 0 && !comprou[clientes[i]]) {
+                        comprou[clientes[i]] = true;
+                        unicos++;
+                    }
+                    itens += quantidades[i];
+                    if (!Double.isNaN(precos[i])) receita += quantidades[i] * precos[i];
+                }
+                total++;
+            }
+            if (contarTudo) totais = new RollupsDiarios.Totais(total, itens, receita, unicos);
+            String proximo = temMais ? cursor(offsets[ultimo + 1]) : null;
+            return new Resultado(pagina, totais, temMais, proximo);
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    /** COMPRAs do cliente com esse nome (trim, espaços e caixa ignorados), em ordem do log. */
+    public List<Evento> comprasDoCliente(String nome) {
+        rw.readLock().lock();
+        try {
+            var out = new ArrayList<Evento>();
+            for (int i : indiceClientes.comNome(nome)) {
+                if (tipos[i] == idCompra) out.add(evento(i));
+            }
+            return out;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    private static int[] intersecao(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int k = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[k++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, k);
+    }
+
+    private static int primeiroMaiorOuIgual(int[] v, int x) {
+        int lo = 0, hi = v.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (v[mid] < x) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ----------------------------------------------------------------- cursor
+
+    /*
+     * O cursor é um offset lógico no log: bytes (UTF-8) de todas as linhas não vazias
+     * desde o começo do histórico, contando 1 por quebra de linha. Não muda quando o
+     * ativo rotaciona para um segmento gzip (que reescreve as quebras de linha), então
+     * continua válido entre rotações e reinícios.
+     */
+
+    private static String cursor(long offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("o:" + offset).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private int indiceDoCursor(String cursor) {
+        long offset;
+        try {
+            String s = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!s.startsWith("o:")) throw new IllegalArgumentException();
+            offset = Long.parseLong(s.substring(2));
+            if (offset < 0) throw new IllegalArgumentException();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        // o cursor é sempre o início de um evento guardado; qualquer outro offset (forjado,
+        // no meio de uma linha, ou além do fim depois de o log ser truncado) é recusado
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (offsets[mid] < offset) lo = mid + 1;
+            else hi = mid;
+        }
+        if (lo == n || offsets[lo] != offset) throw new IllegalArgumentException("Cursor inválido");
+        return lo;
+    }
+
+    private boolean[] casar(Predicate<String> p) {
+        var ok = new boolean[textos.size()];
+        for (int id = 0; id < ok.length; id++) ok[id] = p.test(textos.get(id));
+        return ok;
+    }
+
+    private Evento evento(int i) {
+        long ts = instantes[i];
+        return new Evento(
+                ts == SEM_DATA ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(ts, 1_000_000_000L),
+                        (int) Math.floorMod(ts, 1_000_000_000L), ZoneOffset.UTC),
+                textos.get(tipos[i]),
+                textos.get(clientes[i]),
+                textos.get(livros[i]),
+                quantidades[i],
+                antes[i] == SEM_VALOR ? null : antes[i],
+                depois[i] == SEM_VALOR ? null : depois[i],
+                Double.isNaN(precos[i]) ? null : precos[i],
+                mensagens[i]);
+    }
+
+    // ----------------------------------------------------------------- ingestão
+
+    private void adicionar(ScannerParalelo.Pedaco<Evento> p) {
+        for (int i = 0; i < p.bytes().length; i++) adicionar(p.itens().get(i), p.bytes()[i]);
+    }
+
+    private void adicionar(String line) {
+        adicionar(interpretarNovas.apply(line), ScannerParalelo.bytesUtf8(line));
+    }
+
+    private void adicionar(Evento e, int bytes) {
+        long offset = fimLog;
+        fimLog += bytes + 1;
+        if (e == null) return;
+
+        garantirCapacidade();
+        offsets[n] = offset;
+        instantes[n] = e.timestamp() == null ? SEM_DATA : nanos(e.timestamp());
+        tipos[n] = id(e.tipo());
+        clientes[n] = id(e.cliente());
+        livros[n] = id(e.livro());
+        quantidades[n] = e.quantidade();
+        antes[n] = e.estoqueAntes() == null ? SEM_VALOR : e.estoqueAntes();
+        depois[n] = e.estoqueDepois() == null ? SEM_VALOR : e.estoqueDepois();
+        precos[n] = e.preco() == null ? Double.NaN : e.preco();
+        mensagens[n] = e.mensagem();
+        n++;
+
+        for (var l : listeners) l.aoAdicionar(n - 1, e);
+    }
+
+    private int id(String texto) {
+        Integer id = ids.get(texto);
+        if (id != null) return id;
+        int novo = textos.size();
+        ids.put(texto, novo);
+        textos.add(texto);
+        return novo;
+    }
+
+    private void garantirCapacidade() {
+        if (n < instantes.length) return;
+        int cap = instantes.length * 2;
+        offsets = Arrays.copyOf(offsets, cap);
+        instantes = Arrays.copyOf(instantes, cap);
+        tipos = Arrays.copyOf(tipos, cap);
+        clientes = Arrays.copyOf(clientes, cap);
+        livros = Arrays.copyOf(livros, cap);
+        quantidades = Arrays.copyOf(quantidades, cap);
+        antes = Arrays.copyOf(antes, cap);
+        depois = Arrays.copyOf(depois, cap);
+        precos = Arrays.copyOf(precos, cap);
+        mensagens = Arrays.copyOf(mensagens, cap);
+    }
+
+    private static long nanos(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + t.getNano();
+    }
+}
@@ -0,0 +1,140 @@
+package com.livraria.services.relatorio;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Escreve eventos do relatório em CSV ou NDJSON direto num OutputStream, linha a
+ * linha: nada é acumulado além do buffer de escrita, então a memória não depende
+ * do tamanho da exportação.
+ */
+public final class ExportadorRelatorio {
+
+    public enum Formato {
+        CSV("text/csv; charset=utf-8", "csv"),
+        NDJSON("application/x-ndjson; charset=utf-8", "ndjson");
+
+        public final String contentType;
+        public final String extensao;
+
+        Formato(String contentType, String extensao) {
+            this.contentType = contentType;
+            this.extensao = extensao;
+        }
+
+        public static Formato de(String v) {
+            String x = v == null ? "" : v.trim().toLowerCase(Locale.ROOT);
+            for (var f : values()) {
+                if (f.extensao.equals(x)) return f;
+            }
+            throw new IllegalArgumentException("Formato inválido: use csv ou ndjson");
+        }
+    }
+
+    private static final DateTimeFormatter TS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int BUFFER = 64 * 1024;
+
+    private ExportadorRelatorio() {}
+
+    /** Escreve todos os eventos do stream; devolve quantos foram escritos. */
+    public static long escrever(Stream<Evento> eventos, Formato formato, OutputStream out) throws IOException {
+        try {
+            return switch (formato) {
+                case CSV -> csv(eventos.iterator(), out);
+                case NDJSON -> ndjson(eventos.iterator(), out);
+            };
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long csv(Iterator<Evento> it, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER);
+        w.write("timestamp,tipo,cliente,livro,quantidade,estoqueAntes,estoqueDepois,preco,mensagem\r\n");
+        long n = 0;
+        while (it.hasNext()) {
+            Evento e = it.next();
+            w.write(fmtTs(e.timestamp()));
+            w.write(',');
+            campo(w, e.tipo());
+            w.write(',');
+            campo(w, e.cliente());
+            w.write(',');
+            campo(w, e.livro());
+            w.write(',');
+            w.write(Integer.toString(e.quantidade()));
+            w.write(',');
+            if (e.estoqueAntes() != null) w.write(e.estoqueAntes().toString());
+            w.write(',');
+            if (e.estoqueDepois() != null) w.write(e.estoqueDepois().toString());
+            w.write(',');
+            if (e.preco() != null) w.write(String.format(Locale.US, "%.2f", e.preco()));
+            w.write(',');
+            campo(w, e.mensagem());
+            w.write("\r\n");
+            n++;
+        }
+        w.flush();
+        return n;
+    }
+
+    /** Campo CSV (RFC 4180): entre aspas só quando precisa. */
+    private static void campo(Writer w, String v) throws IOException {
+        if (v == null) return;
+        boolean aspas = v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0;
+        if (!aspas) {
+            w.write(v);
+            return;
+        }
+        w.write('"');
+        w.write(v.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    private static long ndjson(Iterator<Evento> it, OutputStream out) throws IOException {
+        long n = 0;
+        try (JsonGenerator g = JSON.createGenerator(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER))) {
+            g.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            g.setRootValueSeparator(null);
+            while (it.hasNext()) {
+                Evento e = it.next();
+                g.writeStartObject();
+                g.writeStringField("timestamp", fmtTs(e.timestamp()));
+                g.writeStringField("tipo", e.tipo());
+                g.writeStringField("cliente", e.cliente());
+                g.writeStringField("livro", e.livro());
+                g.writeNumberField("quantidade", e.quantidade());
+                g.writeFieldName("estoqueAntes");
+                if (e.estoqueAntes() == null) g.writeNull(); else g.writeNumber(e.estoqueAntes());
+                g.writeFieldName("estoqueDepois");
+                if (e.estoqueDepois() == null) g.writeNull(); else g.writeNumber(e.estoqueDepois());
+                g.writeFieldName("preco");
+                if (e.preco() == null) g.writeNull(); else g.writeNumber(e.preco());
+                g.writeStringField("mensagem", e.mensagem());
+                g.writeEndObject();
+                g.writeRaw('\n');
+                n++;
+            }
+            g.flush();
+        }
+        return n;
+    }
+
+    private static String fmtTs(LocalDateTime ts) {
+        return ts == null ? "" : ts.format(TS);
+    }
+}
@@ -0,0 +1,166 @@
+package com.livraria.services.relatorio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de um campo texto dos eventos (cliente ou livro) para os filtros por
+ * trecho do relatório, atualizado a cada evento que entra. Não tem lock próprio:
+ * só é usado pelo store, sob o lock dele.
+ * <p>
+ * Cada valor distinto do campo ganha um id e a lista (crescente) das posições dos
+ * seus eventos no {@link EventoStore}. Os trigramas do valor em minúsculas apontam
+ * para os ids que os contêm: um trecho com 3 ou mais caracteres só pode estar nos
+ * valores que têm todos os trigramas dele, então a consulta cruza essas listas,
+ * confirma o contains só nos que sobraram e junta as posições deles, sem olhar
+ * evento nenhum. Trechos de 1 ou 2 caracteres testam os valores distintos.
+ * <p>
+ * Um segundo mapa junta as grafias que normalizam igual (trim, colapso de espaços
+ * e minúsculas, como no cadastro de clientes), para buscar o histórico de um
+ * cliente cadastrado pelo nome.
+ */
+final class IndiceTrigramas implements EventoListener {
+
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    /** Lista de inteiros crescente (posições de eventos ou ids de valores, que chegam em ordem). */
+    private static final class Lista {
+        int[] v = new int[4];
+        int n;
+
+        void add(int i) {
+            if (n == v.length) v = Arrays.copyOf(v, n * 2);
+            v[n++] = i;
+        }
+    }
+
+    private final Function<Evento, String> campo;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> minusculos = new ArrayList<>();  // id -> valor em minúsculas
+    private final List<Lista> posicoes = new ArrayList<>();     // id -> posições dos eventos
+    private final Map<Long, Lista> trigramas = new HashMap<>(); // trigrama -> ids dos valores
+    private final Map<String, Lista> grafias = new HashMap<>(); // nome normalizado -> ids
+
+    IndiceTrigramas(Function<Evento, String> campo) {
+        this.campo = campo;
+    }
+
+    @Override
+    public void aoAdicionar(int indice, Evento e) {
+        String valor = campo.apply(e);
+        if (valor.isEmpty()) return;
+        Integer id = ids.get(valor);
+        if (id == null) id = novoValor(valor);
+        posicoes.get(id).add(indice);
+    }
+
+    @Override
+    public void limpar() {
+        ids.clear();
+        minusculos.clear();
+        posicoes.clear();
+        trigramas.clear();
+        grafias.clear();
+    }
+
+    private int novoValor(String valor) {
+        int id = minusculos.size();
+        String m = valor.toLowerCase(); // mesma caixa dos filtros (ver RelatorioController)
+        ids.put(valor, id);
+        minusculos.add(m);
+        posicoes.add(new Lista());
+        for (int i = 0; i + 3 <= m.length(); i++) {
+            var l = trigramas.computeIfAbsent(trigrama(m, i), k -> new Lista());
+            if (l.n == 0 || l.v[l.n - 1] != id) l.add(id); // trigrama repetido no mesmo valor
+        }
+        grafias.computeIfAbsent(norm(valor), k -> new Lista()).add(id);
+        return id;
+    }
+
+    // ----------------------------------------------------------------- consulta
+
+    /** Posições (crescentes) dos eventos cujo valor, em minúsculas, contém o trecho (já em minúsculas). */
+    int[] contendo(String trecho) {
+        var achados = new ArrayList<Lista>();
+        if (trecho.length() < 3) {
+            for (int id = 0; id < minusculos.size(); id++) {
+                if (minusculos.get(id).contains(trecho)) achados.add(posicoes.get(id));
+            }
+            return unir(achados);
+        }
+        var listas = new ArrayList<Lista>();
+        for (int i = 0; i + 3 <= trecho.length(); i++) {
+            var l = trigramas.get(trigrama(trecho, i));
+            if (l == null) return new int[0];
+            listas.add(l);
+        }
+        listas.sort(Comparator.comparingInt(l -> l.n)); // cruza a partir da menor
+        int[] candidatos = Arrays.copyOf(listas.get(0).v, listas.get(0).n);
+        int k = candidatos.length;
+        for (int j = 1; j < listas.size() && k > 0; j++) k = intersecao(candidatos, k, listas.get(j));
+        for (int j = 0; j < k; j++) {
+            int id = candidatos[j];
+            // ter os trigramas não garante o trecho (podem estar fora de ordem)
+            if (minusculos.get(id).contains(trecho)) achados.add(posicoes.get(id));
+        }
+        return unir(achados);
+    }
+
+    /** Posições dos eventos com esse nome (comparado normalizado). */
+    int[] comNome(String nome) {
+        var ids = grafias.get(norm(nome));
+        var achados = new ArrayList<Lista>();
+        if (ids != null) {
+            for (int j = 0; j < ids.n; j++) achados.add(posicoes.get(ids.v[j]));
+        }
+        return unir(achados);
+    }
+
+    /** Deixa em a[0..k) só o que também está em b; devolve o novo k. */
+    private static int intersecao(int[] a, int k, Lista b) {
+        int out = 0, j = 0;
+        for (int i = 0; i < k && j < b.n; ) {
+            if (a[i] < b.v[j]) i++;
+            else if (a[i] > b.v[j]) j++;
+            else {
+                a[out++] = a[i++];
+                j++;
+            }
+        }
+        return out;
+    }
+
+    private static int[] unir(List<Lista> listas) {
+        if (listas.size() == 1) {
+            var p = listas.get(0);
+            return Arrays.copyOf(p.v, p.n);
+        }
+        int total = 0;
+        for (var p : listas) total += p.n;
+        int[] out = new int[total];
+        int k = 0;
+        for (var p : listas) {
+            System.arraycopy(p.v, 0, out, k, p.n);
+            k += p.n;
+        }
+        Arrays.sort(out); // cada posição é de um valor só: sem repetidos
+        return out;
+    }
+
+    /** Três chars em 48 bits. */
+    private static long trigrama(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    static String norm(String s) {
+        return ESPACOS.matcher(s.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,185 @@
+package com.livraria.services.relatorio;
+
+import com.livraria.services.LivroService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Vendas por livro (unidades e receita), somadas a partir dos eventos COMPRA
+ * conforme entram no {@link EventoStore}.
+ * <p>
+ * Os totais de todo o período ficam também em dois TreeSets (por unidades e por
+ * receita): o top-K sem filtro de data é só percorrer os K primeiros, O(log N + K).
+ * Com de/ate, somam-se os agregados diários do período e um heap de tamanho K
+ * separa os maiores, sem olhar evento nenhum.
+ * <p>
+ * COMPRA sem preço no log (linhas antigas) usa o preço do catálogo na primeira vez
+ * que o livro aparece; na resposta vai também o preço atual do catálogo.
+ */
+public final class RankingVendas implements EventoListener {
+
+    public enum Criterio {
+        UNIDADES, RECEITA;
+
+        public static Criterio de(String v) {
+            String x = v == null || v.isBlank() ? "unidades" : v.trim().toLowerCase(Locale.ROOT);
+            for (var c : values()) {
+                if (c.name().toLowerCase(Locale.ROOT).equals(x)) return c;
+            }
+            throw new IllegalArgumentException("Critério inválido: use unidades ou receita");
+        }
+    }
+
+    /** Uma linha do ranking; precoAtual é nulo se o livro não está mais no catálogo. */
+    public record Item(String livro, long unidades, double receita, Double precoAtual) {}
+
+    private static final class Vendas {
+        final String livro;
+        long unidades;
+        double receita;
+
+        Vendas(String livro) {
+            this.livro = livro;
+        }
+    }
+
+    private static final Comparator<Vendas> POR_UNIDADES = Comparator.<Vendas>comparingLong(v -> -v.unidades)
+            .thenComparing(v -> v.livro);
+    private static final Comparator<Vendas> POR_RECEITA = Comparator.<Vendas>comparingDouble(v -> -v.receita)
+            .thenComparing(v -> v.livro);
+
+    private static final class Holder {
+        static final RankingVendas INSTANCIA = criar();
+
+        private static RankingVendas criar() {
+            // o mesmo catálogo do LivroService: enxerga preços alterados e livros novos
+            var livros = LivroService.instancia();
+            var r = new RankingVendas(livros::precoAtual);
+            EventoStore.instancia().adicionarListener(r);
+            return r;
+        }
+    }
+
+    /** Ranking pendurado no store do relatório (registrado no primeiro uso). */
+    public static RankingVendas instancia() {
+        return Holder.INSTANCIA;
+    }
+
+    private final Function<String, Double> precoNoCatalogo;
+    private final Map<String, Double> precoUsado = new HashMap<>(); // livro -> preço do catálogo já aplicado
+
+    // dia -> livro -> vendas; COMPRA sem data fica à parte (entra em qualquer período)
+    private final TreeMap<LocalDate, Map<String, Vendas>> porDia = new TreeMap<>();
+    private final Map<String, Vendas> semData = new HashMap<>();
+
+    // todo o período; um Vendas só muda fora dos sets (tira, soma, põe de volta)
+    private final Map<String, Vendas> total = new HashMap<>();
+    private final TreeSet<Vendas> rankingUnidades = new TreeSet<>(POR_UNIDADES);
+    private final TreeSet<Vendas> rankingReceita = new TreeSet<>(POR_RECEITA);
+
+    public RankingVendas(Function<String, Double> precoNoCatalogo) {
+        this.precoNoCatalogo = precoNoCatalogo;
+    }
+
+    // ----------------------------------------------------------------- EventoListener
+
+    @Override
+    public synchronized void aoAdicionar(int indice, Evento e) {
+        if (!"COMPRA".equals(e.tipo()) || e.livro().isEmpty()) return;
+        Double preco = e.preco() != null ? e.preco()
+                : precoUsado.computeIfAbsent(e.livro(), precoNoCatalogo);
+        double receita = preco == null ? 0 : e.quantidade() * preco;
+
+        var dia = e.timestamp() == null ? semData
+                : porDia.computeIfAbsent(e.timestamp().toLocalDate(), d -> new HashMap<>());
+        somar(dia.computeIfAbsent(e.livro(), Vendas::new), e.quantidade(), receita);
+
+        var t = total.computeIfAbsent(e.livro(), Vendas::new);
+        rankingUnidades.remove(t);
+        rankingReceita.remove(t);
+        somar(t, e.quantidade(), receita);
+        rankingUnidades.add(t);
+        rankingReceita.add(t);
+    }
+
+    @Override
+    public synchronized void limpar() {
+        precoUsado.clear();
+        porDia.clear();
+        semData.clear();
+        total.clear();
+        rankingUnidades.clear();
+        rankingReceita.clear();
+    }
+
+    // ----------------------------------------------------------------- consulta
+
+    /** Os k livros que mais venderam em [de, ate] (nulos = sem limite). */
+    public List<Item> top(Criterio criterio, int k, LocalDate de, LocalDate ate) {
+        List<Vendas> maiores;
+        synchronized (this) {
+            maiores = de == null && ate == null ? primeiros(criterio, k) : maioresNoPeriodo(criterio, k, de, ate);
+        }
+        // o catálogo é consultado fora do lock, só para os k da resposta
+        var itens = new ArrayList<Item>(maiores.size());
+        for (var v : maiores) {
+            itens.add(new Item(v.livro, v.unidades, v.receita, precoNoCatalogo.apply(v.livro)));
+        }
+        return itens;
+    }
+
+    private List<Vendas> primeiros(Criterio criterio, int k) {
+        var out = new ArrayList<Vendas>(Math.min(k, total.size()));
+        for (var v : criterio == Criterio.UNIDADES ? rankingUnidades : rankingReceita) {
+            if (out.size() == k) break;
+            out.add(copia(v));
+        }
+        return out;
+    }
+
+    private List<Vendas> maioresNoPeriodo(Criterio criterio, int k, LocalDate de, LocalDate ate) {
+        var dias = de == null ? porDia.headMap(ate, true)
+                : ate == null ? porDia.tailMap(de, true)
+                : de.isAfter(ate) ? Map.<LocalDate, Map<String, Vendas>>of()
+                : porDia.subMap(de, true, ate, true);
+        var soma = new HashMap<String, Vendas>();
+        for (var porLivro : dias.values()) acumular(soma, porLivro);
+        acumular(soma, semData);
+
+        Comparator<Vendas> ordem = criterio == Criterio.UNIDADES ? POR_UNIDADES : POR_RECEITA;
+        // heap com os k maiores; o topo é o "pior" dos k
+        var heap = new PriorityQueue<Vendas>(k + 1, ordem.reversed());
+        for (var v : soma.values()) {
+            heap.add(v);
+            if (heap.size() > k) heap.poll();
+        }
+        var out = new ArrayList<>(heap);
+        out.sort(ordem);
+        return out;
+    }
+
+    private static void acumular(Map<String, Vendas> soma, Map<String, Vendas> parcela) {
+        for (var v : parcela.values()) somar(soma.computeIfAbsent(v.livro, Vendas::new), v.unidades, v.receita);
+    }
+
+    private static void somar(Vendas v, long unidades, double receita) {
+        v.unidades += unidades;
+        v.receita += receita;
+    }
+
+    private static Vendas copia(Vendas v) {
+        var c = new Vendas(v.livro);
+        somar(c, v.unidades, v.receita);
+        return c;
+    }
+}
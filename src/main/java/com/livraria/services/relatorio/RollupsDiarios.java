@@ -0,0 +1,198 @@
+package com.livraria.services.relatorio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Agregados por dia e por tipo de evento: quantidade de eventos, itens vendidos e
+ * receita. Somar os totais de um período custa O(dias no período), sem varrer linhas.
+ * <p>
+ * É persistido em data/log/rollups.csv com uma marca d'água: quantos eventos já
+ * foram somados e o instante do último. Na subida o store relê o log do começo;
+ * eventos abaixo da marca não são somados de novo. Se o último evento da marca
+ * não bater (log trocado ou truncado), ou se o arquivo foi gravado por outra versão
+ * da interpretação das linhas ({@link #VERSAO}), os agregados são refeitos do zero.
+ */
+public final class RollupsDiarios implements EventoListener {
+
+    /** Soma de um (dia, tipo). */
+    private static final class Acumulado {
+        long eventos;
+        long itens;
+        double receita;
+    }
+
+    /** clientesUnicos: clientes distintos nas COMPRAs (estimado, ver {@link ClientesUnicos}). */
+    public record Totais(long eventos, long itens, double receita, long clientesUnicos) {}
+
+    private static final String SEM_DATA = "sem-data";
+
+    // sobe quando muda o que o parser extrai das linhas (2: formato antigo do log tipado)
+    private static final String VERSAO = "2";
+
+    private final Path arquivo;
+
+    // dia -> tipo -> acumulado; eventos sem data ficam à parte (entram em qualquer período)
+    private final TreeMap<LocalDate, Map<String, Acumulado>> porDia = new TreeMap<>();
+    private final Map<String, Acumulado> semData = new HashMap<>();
+
+    // marca d'água: eventos [0, somados) já estão nos agregados
+    private long somados;
+    private LocalDateTime ultimo;
+    private boolean inconsistente;
+    private boolean alterado;
+
+    public RollupsDiarios(Path arquivo) {
+        this.arquivo = arquivo;
+        carregar();
+    }
+
+    // ----------------------------------------------------------------- EventoListener
+
+    @Override
+    public synchronized void aoAdicionar(int indice, Evento e) {
+        if (indice < somados) {
+            // já contado numa execução anterior; confere o último para detectar log diferente
+            if (indice == somados - 1 && !Objects.equals(e.timestamp(), ultimo)) {
+                inconsistente = true;
+            }
+            return;
+        }
+        var dia = e.timestamp() == null ? semData
+                : porDia.computeIfAbsent(e.timestamp().toLocalDate(), d -> new HashMap<>());
+        var a = dia.computeIfAbsent(e.tipo(), t -> new Acumulado());
+        a.eventos++;
+        if ("COMPRA".equals(e.tipo())) {
+            a.itens += e.quantidade();
+            a.receita += e.receita();
+        }
+        somados = indice + 1L;
+        ultimo = e.timestamp();
+        alterado = true;
+    }
+
+    @Override
+    public synchronized boolean precisaReprocessar(int total) {
+        return inconsistente || total < somados;
+    }
+
+    @Override
+    public synchronized void limpar() {
+        porDia.clear();
+        semData.clear();
+        somados = 0;
+        ultimo = null;
+        inconsistente = false;
+        alterado = true;
+    }
+
+    // ----------------------------------------------------------------- consulta
+
+    /**
+     * Totais de [de, ate] (nulos = sem limite) para os tipos aceitos. Os agregados
+     * daqui não guardam quem comprou: clientesUnicos vem pronto de quem chama.
+     */
+    public synchronized Totais totais(LocalDate de, LocalDate ate, Predicate<String> tipo, long clientesUnicos) {
+        var dias = de == null && ate == null ? porDia
+                : de == null ? porDia.headMap(ate, true)
+                : ate == null ? porDia.tailMap(de, true)
+                : de.isAfter(ate) ? Map.<LocalDate, Map<String, Acumulado>>of()
+                : porDia.subMap(de, true, ate, true);
+        long eventos = 0, itens = 0;
+        double receita = 0;
+        for (var porTipo : dias.values()) {
+            for (var e : porTipo.entrySet()) {
+                if (!tipo.test(e.getKey())) continue;
+                eventos += e.getValue().eventos;
+                itens += e.getValue().itens;
+                receita += e.getValue().receita;
+            }
+        }
+        for (var e : semData.entrySet()) {
+            if (!tipo.test(e.getKey())) continue;
+            eventos += e.getValue().eventos;
+            itens += e.getValue().itens;
+            receita += e.getValue().receita;
+        }
+        return new Totais(eventos, itens, receita, clientesUnicos);
+    }
+
+    /** True (e zera o indicador) se houve mudança desde a última chamada. */
+    synchronized boolean alteradoDesdeUltimaVez() {
+        boolean a = alterado;
+        alterado = false;
+        return a;
+    }
+
+    // ----------------------------------------------------------------- persistência
+
+    public Path arquivo() {
+        return arquivo;
+    }
+
+    /** Conteúdo do rollups.csv (avaliado na thread do DurableWriter). */
+    public synchronized List<String> linhas() {
+        var out = new ArrayList<String>();
+        out.add("#marca," + somados + "," + (ultimo == null ? "" : ultimo) + "," + VERSAO);
+        out.add("dia,tipo,eventos,itens,receita");
+        for (var d : porDia.entrySet()) {
+            for (var t : d.getValue().entrySet()) out.add(linha(d.getKey().toString(), t.getKey(), t.getValue()));
+        }
+        for (var t : semData.entrySet()) out.add(linha(SEM_DATA, t.getKey(), t.getValue()));
+        return out;
+    }
+
+    private static String linha(String dia, String tipo, Acumulado a) {
+        // o tipo vem do log e pode ter vírgula: na leitura o dia é a 1a coluna,
+        // os números são as 3 últimas e o tipo é o que sobra no meio
+        return dia + "," + tipo + "," + a.eventos + "," + a.itens + ","
+                + String.format(Locale.US, "%.2f", a.receita);
+    }
+
+    private void carregar() {
+        if (!Files.exists(arquivo)) return;
+        try {
+            for (String l : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+                if (l.isBlank() || l.startsWith("dia,")) continue;
+                if (l.startsWith("#marca,")) {
+                    String[] p = l.split(",", -1);
+                    somados = Long.parseLong(p[1]);
+                    ultimo = p[2].isEmpty() ? null : LocalDateTime.parse(p[2]);
+                    inconsistente = p.length < 4 || !VERSAO.equals(p[3]);
+                    continue;
+                }
+                int c1 = l.indexOf(',');
+                int c4 = l.lastIndexOf(',');
+                int c3 = l.lastIndexOf(',', c4 - 1);
+                int c2 = l.lastIndexOf(',', c3 - 1);
+                String dia = l.substring(0, c1);
+                var a = new Acumulado();
+                a.eventos = Long.parseLong(l.substring(c2 + 1, c3));
+                a.itens = Long.parseLong(l.substring(c3 + 1, c4));
+                a.receita = Double.parseDouble(l.substring(c4 + 1));
+                var mapa = SEM_DATA.equals(dia) ? semData
+                        : porDia.computeIfAbsent(LocalDate.parse(dia), d -> new HashMap<>());
+                mapa.put(l.substring(c1 + 1, c2), a);
+            }
+        } catch (IOException | RuntimeException e) {
+            // arquivo ilegível: recomeça do zero a partir do log
+            System.err.println("Rollups ignorados (" + arquivo.getFileName() + "): " + e.getMessage());
+            porDia.clear();
+            semData.clear();
+            somados = 0;
+            ultimo = null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.livraria.shared.storage;
+
+import com.livraria.repositories.ClienteRepository;
+import com.livraria.repositories.CsvClienteRepository;
+import com.livraria.repositories.CsvLivroRepository;
+import com.livraria.repositories.LivroRepository;
+import com.livraria.repositories.MappedLivroRepository;
+import com.livraria.shared.utils.Paths;
+import com.livraria.support.repositories.CsvTicketRepository;
+import com.livraria.support.repositories.TicketRepository;
+
+/**
+ * Backend padrão: arquivos em data/ (CSV; o catálogo pode ir para o formato mapeado
+ * com -Dlivraria.livros.storage=mmap). Cada chamada devolve um repositório novo,
+ * que lê o estado atual dos arquivos.
+ */
+public class CsvStorageProvider implements StorageProvider {
+
+    @Override
+    public String nome() {
+        return "csv";
+    }
+
+    @Override
+    public LivroRepository livros() {
+        return "mmap".equals(Paths.LIVROS_STORAGE) ? new MappedLivroRepository() : new CsvLivroRepository();
+    }
+
+    @Override
+    public ClienteRepository clientes() {
+        return new CsvClienteRepository();
+    }
+
+    @Override
+    public TicketRepository tickets() {
+        return new CsvTicketRepository();
+    }
+}
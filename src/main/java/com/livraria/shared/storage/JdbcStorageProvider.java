@@ -0,0 +1,126 @@
+package com.livraria.shared.storage;
+
+import com.livraria.repositories.ClienteRepository;
+import com.livraria.repositories.CsvClienteRepository;
+import com.livraria.repositories.CsvLivroRepository;
+import com.livraria.repositories.JdbcClienteRepository;
+import com.livraria.repositories.JdbcLivroRepository;
+import com.livraria.repositories.LivroRepository;
+import com.livraria.shared.utils.Paths;
+import com.livraria.support.repositories.CsvTicketRepository;
+import com.livraria.support.repositories.JdbcTicketRepository;
+import com.livraria.support.repositories.TicketRepository;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Backend "jdbc": H2 embarcado em arquivo (data/livraria.mv.db), sem servidor,
+ * com pool de conexões, prepared statements e índices nas colunas de busca.
+ * <p>
+ * Na primeira subida cria o schema e importa os CSVs existentes. A importação de cada
+ * tabela acontece uma vez só e fica marcada na tabela importacoes: depois dela o banco é a
+ * fonte de verdade (os CSVs não são mais atualizados), então uma tabela esvaziada pela API
+ * continua vazia ao reiniciar. O tamanho do pool vem de -Dlivraria.jdbc.pool (padrão 10).
+ */
+public class JdbcStorageProvider implements StorageProvider {
+
+    private volatile JdbcConnectionPool pool;
+
+    @Override
+    public String nome() {
+        return "jdbc";
+    }
+
+    @Override
+    public LivroRepository livros() {
+        return new JdbcLivroRepository(pool());
+    }
+
+    @Override
+    public ClienteRepository clientes() {
+        return new JdbcClienteRepository(pool());
+    }
+
+    @Override
+    public TicketRepository tickets() {
+        return new JdbcTicketRepository(pool());
+    }
+
+    // ------------------------------------------------------------------ inicialização
+
+    private JdbcConnectionPool pool() {
+        JdbcConnectionPool p = pool;
+        if (p == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    pool = abrir();
+                }
+                p = pool;
+            }
+        }
+        return p;
+    }
+
+    private static JdbcConnectionPool abrir() {
+        var p = JdbcConnectionPool.create("jdbc:h2:file:" + Paths.BANCO.toAbsolutePath(), "sa", "");
+        p.setMaxConnections(Math.max(1, Integer.getInteger("livraria.jdbc.pool", 10)));
+
+        try (Connection c = p.getConnection()) {
+            JdbcLivroRepository.criarSchema(c);
+            JdbcClienteRepository.criarSchema(c);
+            JdbcTicketRepository.criarSchema(c);
+            try (var st = c.createStatement()) {
+                st.execute("CREATE TABLE IF NOT EXISTS importacoes (tabela VARCHAR(64) PRIMARY KEY)");
+            }
+
+            if (aImportar(c, "livros") && Files.exists(Paths.LIVROS)) {
+                new JdbcLivroRepository(p).salvarTodos(new CsvLivroRepository(false).listar());
+            }
+            if (aImportar(c, "clientes") && Files.exists(Paths.CLIENTES)) {
+                new JdbcClienteRepository(p).salvarTodos(new CsvClienteRepository().listar());
+            }
+            if (aImportar(c, "tickets") && Files.exists(Paths.TICKETS)) {
+                new JdbcTicketRepository(p).importar(new CsvTicketRepository().listar());
+            }
+            for (String tabela : new String[] {"livros", "clientes", "tickets"}) {
+                marcarImportada(c, tabela);
+            }
+        } catch (SQLException e) {
+            p.dispose();
+            throw new RuntimeException("Erro inicializando banco em " + Paths.BANCO, e);
+        }
+        return p;
+    }
+
+    /**
+     * Só importa se a tabela ainda não foi marcada e está vazia: uma queda entre a importação
+     * e a marca não duplica linhas (a tabela já cheia só é marcada na próxima subida).
+     */
+    private static boolean aImportar(Connection c, String tabela) throws SQLException {
+        try (var ps = c.prepareStatement("SELECT 1 FROM importacoes WHERE tabela = ?")) {
+            ps.setString(1, tabela);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return false;
+            }
+        }
+        return vazia(c, tabela);
+    }
+
+    private static void marcarImportada(Connection c, String tabela) throws SQLException {
+        try (var ps = c.prepareStatement("MERGE INTO importacoes (tabela) KEY (tabela) VALUES (?)")) {
+            ps.setString(1, tabela);
+            ps.executeUpdate();
+        }
+    }
+
+    private static boolean vazia(Connection c, String tabela) throws SQLException {
+        try (var st = c.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + tabela)) {
+            rs.next();
+            return rs.getLong(1) == 0;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.livraria.shared.storage;
+
+import com.livraria.shared.utils.Paths;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Ponto único de escolha do backend de armazenamento (-Dlivraria.storage, padrão "csv").
+ */
+public final class Storage {
+
+    private static volatile StorageProvider atual;
+
+    private Storage() {}
+
+    public static StorageProvider provider() {
+        StorageProvider p = atual;
+        if (p == null) {
+            synchronized (Storage.class) {
+                if (atual == null) {
+                    atual = carregar(Paths.STORAGE);
+                }
+                p = atual;
+            }
+        }
+        return p;
+    }
+
+    private static StorageProvider carregar(String nome) {
+        List<String> disponiveis = new ArrayList<>();
+        for (StorageProvider p : ServiceLoader.load(StorageProvider.class)) {
+            if (p.nome().equalsIgnoreCase(nome)) return p;
+            disponiveis.add(p.nome());
+        }
+        throw new IllegalStateException("Storage desconhecido: '" + nome + "'. Disponíveis: " + disponiveis);
+    }
+}
@@ -0,0 +1,26 @@
+package com.livraria.shared.storage;
+
+import com.livraria.repositories.ClienteRepository;
+import com.livraria.repositories.LivroRepository;
+import com.livraria.support.repositories.TicketRepository;
+
+/**
+ * SPI de armazenamento: cada backend entrega os repositórios de livros, clientes e tickets.
+ * As implementações são descobertas via {@link java.util.ServiceLoader}
+ * (META-INF/services/com.livraria.shared.storage.StorageProvider) e escolhidas
+ * na subida por -Dlivraria.storage=&lt;nome&gt;.
+ * <p>
+ * O construtor sem argumentos deve ser barato: o ServiceLoader instancia todos os provedores
+ * para achar o escolhido, então conexões/arquivos só devem ser abertos no primeiro uso.
+ */
+public interface StorageProvider {
+
+    /** Nome usado em -Dlivraria.storage (ex.: "csv", "jdbc"). */
+    String nome();
+
+    LivroRepository livros();
+
+    ClienteRepository clientes();
+
+    TicketRepository tickets();
+}
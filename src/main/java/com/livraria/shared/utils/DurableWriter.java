@@ -0,0 +1,152 @@
+package com.livraria.shared.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Gravador durável compartilhado pelos repositórios CSV (group commit).
+ * <p>
+ * Cada gravação é atômica: escreve num arquivo temporário ao lado do destino,
+ * força o conteúdo para o disco (fsync) e renomeia por cima do original.
+ * Um crash no meio deixa o arquivo antigo ou o novo, nunca um pela metade.
+ * <p>
+ * Todas as gravações pedidas para o mesmo arquivo durante uma janela de flush
+ * (-Dlivraria.escrita.janelaMs, padrão 2ms) viram uma única escrita + um fsync:
+ * vale o conteúdo mais recente, e todos que pediram são liberados juntos.
+ * <p>
+ * O conteúdo é um {@link Supplier} avaliado na hora do flush, na thread do gravador.
+ * Se ele precisa de um lock (ex.: para tirar um snapshot consistente), quem chama
+ * {@link #gravar} não pode estar segurando esse mesmo lock enquanto espera.
+ */
+public final class DurableWriter {
+
+    private static final DurableWriter INSTANCIA =
+            new DurableWriter(Math.max(0, Long.getLong("livraria.escrita.janelaMs", 2)));
+
+    public static DurableWriter instancia() {
+        return INSTANCIA;
+    }
+
+    private static final class Pendente {
+        Supplier<? extends Collection<String>> conteudo;
+        final CompletableFuture<Void> gravado = new CompletableFuture<>();
+    }
+
+    private final long janelaMs;
+    private final Object lock = new Object();
+    private Map<Path, Pendente> pendentes = new LinkedHashMap<>();
+    private Thread flusher;
+
+    private DurableWriter(long janelaMs) {
+        this.janelaMs = janelaMs;
+    }
+
+    /**
+     * Agenda a gravação do arquivo inteiro e retorna um future que completa
+     * quando o conteúdo (este ou um mais novo) estiver em disco.
+     */
+    public CompletableFuture<Void> agendar(Path destino, Supplier<? extends Collection<String>> conteudo) {
+        synchronized (lock) {
+            iniciarSeNecessario();
+            Pendente p = pendentes.computeIfAbsent(destino, k -> new Pendente());
+            p.conteudo = conteudo; // o mais recente vence
+            lock.notifyAll();
+            return p.gravado;
+        }
+    }
+
+    /** Agenda e espera a gravação ficar durável. */
+    public void gravar(Path destino, Supplier<? extends Collection<String>> conteudo) {
+        try {
+            agendar(destino, conteudo).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Erro gravando " + destino.getFileName(), e.getCause());
+        }
+    }
+
+    /** Atalho para quando o conteúdo já está pronto. */
+    public void gravar(Path destino, Collection<String> linhas) {
+        gravar(destino, () -> linhas);
+    }
+
+    // ----------------------------------------------------------------- flush
+
+    private void iniciarSeNecessario() {
+        if (flusher != null) return;
+        flusher = new Thread(this::loop, "durable-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void loop() {
+        try {
+            while (true) {
+                synchronized (lock) {
+                    while (pendentes.isEmpty()) lock.wait();
+                }
+                // janela de agrupamento: deixa as mutações concorrentes chegarem
+                if (janelaMs > 0) Thread.sleep(janelaMs);
+
+                Map<Path, Pendente> lote;
+                synchronized (lock) {
+                    lote = pendentes;
+                    pendentes = new LinkedHashMap<>();
+                }
+                for (var e : lote.entrySet()) {
+                    Pendente p = e.getValue();
+                    try {
+                        escreverAtomico(e.getKey(), p.conteudo.get());
+                        p.gravado.complete(null);
+                    } catch (Throwable t) {
+                        p.gravado.completeExceptionally(t);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void escreverAtomico(Path destino, Collection<String> linhas) throws IOException {
+        Path dir = destino.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = destino.resolveSibling(destino.getFileName() + ".tmp");
+
+        var sb = new StringBuilder();
+        String nl = System.lineSeparator();
+        for (String l : linhas) sb.append(l).append(nl);
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+
+        try {
+            Files.move(tmp, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // fsync do diretório para o rename sobreviver a uma queda de energia (não suportado em todo SO)
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException ignored) {
+            // ex.: Windows não abre diretório como canal; o rename já foi feito
+        }
+    }
+}
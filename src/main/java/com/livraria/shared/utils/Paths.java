@@ -11,6 +11,26 @@ public final class Paths {
     public static final Path CLIENTES;
     public static final Path LOG;
     public static final Path TICKETS;
+    public static final Path LIVROS_JOURNAL;
+    public static final Path LIVROS_DAT;
+    public static final Path LIVROS_HEAP;
+    public static final Path LOG_SEGMENTOS;
+    public static final Path LOG_CATALOGO;
+    public static final Path LOG_ROLLUPS;
+
+    // backend do catálogo: "csv" (padrão) ou "mmap" (ver MappedLivroRepository)
+    public static final String LIVROS_STORAGE;
+
+    // provedor de armazenamento (ver shared.storage.Storage) e base H2 do backend jdbc
+    public static final String STORAGE;
+    public static final Path BANCO;
+
+    // modo journal do catálogo (ver CsvLivroRepository)
+    public static final boolean LIVROS_JOURNAL_ATIVO;
+    public static final long LIVROS_JOURNAL_COMPACTACAO_SEG;
+
+    // rotação do log de ações (ver utils.LogSegmentos)
+    public static final long LOG_MAX_BYTES;
 
     static {
         // 1) Permite override via VM option:
@@ -27,6 +47,34 @@ public final class Paths {
         CLIENTES = DATA_DIR.resolve("clientes.csv");
         LOG      = DATA_DIR.resolve("log_acoes.txt");
         TICKETS  = DATA_DIR.resolve("tickets.csv");
+        LIVROS_JOURNAL = DATA_DIR.resolve("livros.journal");
+        LIVROS_DAT     = DATA_DIR.resolve("livros.dat");
+        LIVROS_HEAP    = DATA_DIR.resolve("livros.heap");
+
+        // 3) Modo journal do catálogo: -Dlivraria.livros.journal=true
+        //    as mutações viram registros anexados em livros.journal e uma thread
+        //    compacta tudo num livros.csv novo a cada N segundos
+        //    (-Dlivraria.livros.journal.compactacao=30)
+        LIVROS_JOURNAL_ATIVO = Boolean.getBoolean("livraria.livros.journal");
+        LIVROS_JOURNAL_COMPACTACAO_SEG = Math.max(1, Long.getLong("livraria.livros.journal.compactacao", 30));
+
+        // 4) Backend do catálogo: -Dlivraria.livros.storage=csv|mmap
+        //    "mmap" usa registros de largura fixa em livros.dat (mapeado em memória)
+        //    e os textos em livros.heap; na 1a subida importa o livros.csv
+        LIVROS_STORAGE = System.getProperty("livraria.livros.storage", "csv").trim().toLowerCase();
+
+        // 5) Provedor de armazenamento de livros, clientes e tickets: -Dlivraria.storage=csv|jdbc
+        //    "jdbc" usa um H2 embarcado em data/livraria.mv.db (importa os CSVs na 1a subida)
+        STORAGE = System.getProperty("livraria.storage", "csv").trim().toLowerCase();
+        BANCO   = DATA_DIR.resolve("livraria");
+
+        // 6) Rotação do log de ações: log_acoes.txt guarda só o dia corrente; na virada
+        //    do dia (ou ao passar de -Dlivraria.log.maxMB, padrão 64) vira um segmento
+        //    gzip em data/log/, registrado em data/log/segmentos.csv
+        LOG_SEGMENTOS = DATA_DIR.resolve("log");
+        LOG_CATALOGO  = LOG_SEGMENTOS.resolve("segmentos.csv");
+        LOG_ROLLUPS   = LOG_SEGMENTOS.resolve("rollups.csv"); // agregados diários do relatório
+        LOG_MAX_BYTES = Math.max(1, Long.getLong("livraria.log.maxMB", 64)) * 1024 * 1024;
 
         try {
             Files.createDirectories(DATA_DIR);
@@ -3,6 +3,7 @@ package com.livraria.support.repositories;
 import com.livraria.support.models.Ticket;
 import com.livraria.support.models.TicketPrioridade;
 import com.livraria.support.models.TicketStatus;
+import com.livraria.shared.utils.DurableWriter;
 import com.livraria.shared.utils.Paths;
 
 import java.io.IOException;
@@ -138,10 +139,9 @@ public class CsvTicketRepository implements TicketRepository {
         }
 
         try {
-            Path path = csvPath();
-            Files.createDirectories(path.getParent());
-            Files.write(path, lines, StandardCharsets.UTF_8);
-        } catch (IOException e) {
+            // escrita atômica (tmp + fsync + rename); espera aqui dentro porque listar() relê o arquivo
+            DurableWriter.instancia().gravar(csvPath(), lines);
+        } catch (RuntimeException e) {
             throw new RuntimeException("Erro ao salvar arquivo de tickets", e);
         }
     }
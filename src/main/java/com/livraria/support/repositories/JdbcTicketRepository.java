@@ -0,0 +1,165 @@
+package com.livraria.support.repositories;
+
+import com.livraria.support.models.Ticket;
+import com.livraria.support.models.TicketPrioridade;
+import com.livraria.support.models.TicketStatus;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tickets em banco via JDBC (backend "jdbc").
+ */
+public class JdbcTicketRepository implements TicketRepository {
+
+    private static final String COLUNAS = "id, titulo, descricao, email_cliente, prioridade, status";
+
+    private final DataSource ds;
+
+    public JdbcTicketRepository(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /** Tabela e índices; idempotente. */
+    public static void criarSchema(Connection c) throws SQLException {
+        try (var st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS tickets ("
+                    + " id INT PRIMARY KEY,"
+                    + " titulo VARCHAR(1000) NOT NULL,"
+                    + " descricao VARCHAR(10000) NOT NULL,"
+                    + " email_cliente VARCHAR(1000) NOT NULL,"
+                    + " prioridade VARCHAR(20) NOT NULL,"
+                    + " status VARCHAR(20) NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_tickets_status ON tickets(status)");
+        }
+    }
+
+    /** Usado na importação inicial: grava os tickets mantendo os ids. */
+    public void importar(List<Ticket> tickets) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (var ps = c.prepareStatement("INSERT INTO tickets (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (var t : tickets) {
+                    bind(ps, t);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro importando tickets", e);
+        }
+    }
+
+    @Override
+    public List<Ticket> listar() {
+        return consultar("SELECT " + COLUNAS + " FROM tickets ORDER BY id");
+    }
+
+    @Override
+    public Optional<Ticket> buscarPorId(int id) {
+        return consultar("SELECT " + COLUNAS + " FROM tickets WHERE id = ?", id).stream().findFirst();
+    }
+
+    @Override
+    public synchronized Ticket criar(Ticket novo) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (var st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM tickets");
+                 var ps = c.prepareStatement("INSERT INTO tickets (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?, ?)")) {
+                rs.next();
+                novo.setId(rs.getInt(1));
+                bind(ps, novo);
+                ps.executeUpdate();
+                c.commit();
+                return novo;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro ao salvar ticket", e);
+        }
+    }
+
+    @Override
+    public Ticket atualizar(Ticket t) {
+        try (Connection c = ds.getConnection();
+             var ps = c.prepareStatement("UPDATE tickets SET titulo = ?, descricao = ?, email_cliente = ?,"
+                     + " prioridade = ?, status = ? WHERE id = ?")) {
+            ps.setString(1, nvl(t.getTitulo()));
+            ps.setString(2, nvl(t.getDescricao()));
+            ps.setString(3, nvl(t.getEmailCliente()));
+            ps.setString(4, t.getPrioridade().name());
+            ps.setString(5, t.getStatus().name());
+            ps.setInt(6, t.getId());
+            if (ps.executeUpdate() == 0) {
+                // Service já garante 404 antes, mas aqui funciona como uma segurança adicional
+                throw new RuntimeException("Ticket " + t.getId() + " não encontrado para atualização");
+            }
+            return t;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro ao salvar ticket", e);
+        }
+    }
+
+    @Override
+    public void excluir(int id) {
+        try (Connection c = ds.getConnection(); var ps = c.prepareStatement("DELETE FROM tickets WHERE id = ?")) {
+            ps.setInt(1, id);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Erro ao excluir ticket", e);
+        }
+    }
+
+    // -------------------------------------- helpers -----------------
+
+    private static void bind(PreparedStatement ps, Ticket t) throws SQLException {
+        ps.setInt(1, t.getId());
+        ps.setString(2, nvl(t.getTitulo()));
+        ps.setString(3, nvl(t.getDescricao()));
+        ps.setString(4, nvl(t.getEmailCliente()));
+        ps.setString(5, t.getPrioridade().name());
+        ps.setString(6, t.getStatus().name());
+    }
+
+    private List<Ticket> consultar(String sql, Object... params) {
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            var lista = new ArrayList<Ticket>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new Ticket(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getString(4),
+                            TicketPrioridade.valueOf(rs.getString(5)),
+                            TicketStatus.valueOf(rs.getString(6))
+                    ));
+                }
+            }
+            return lista;
+        } catch (SQLException e) {
+            // Deixa estourar como RuntimeException -> tratado pelo handler 500 do MainSupport
+            throw new RuntimeException("Erro ao ler tickets do banco", e);
+        }
+    }
+
+    private static String nvl(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -3,7 +3,7 @@ package com.livraria.support.services;
 import com.livraria.support.models.Ticket;
 import com.livraria.support.models.TicketPrioridade;
 import com.livraria.support.models.TicketStatus;
-import com.livraria.support.repositories.CsvTicketRepository;
+import com.livraria.shared.storage.Storage;
 import com.livraria.support.repositories.TicketRepository;
 import io.javalin.http.BadRequestResponse;
 import io.javalin.http.NotFoundResponse;
@@ -20,7 +20,7 @@ public class TicketService {
     private final TicketRepository repo;
 
     public TicketService() {
-        this(new CsvTicketRepository());
+        this(Storage.provider().tickets());
     }
 
     public TicketService(TicketRepository repo) {
@@ -0,0 +1,314 @@
+package com.livraria.utils;
+
+import com.livraria.shared.utils.Paths;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appender assíncrono do log de ações (log_acoes.txt).
+ * <p>
+ * Quem registra só carimba o horário e coloca a linha num buffer circular limitado
+ * (-Dlivraria.log.buffer, padrão 8192 linhas); se o buffer encher, espera vaga em vez
+ * de perder a linha. Uma única thread "log-writer" mantém o arquivo aberto e grava
+ * tudo que estiver pendente de uma vez só.
+ * <p>
+ * Política de fsync (-Dlivraria.log.fsync):
+ * <ul>
+ *   <li>{@code lote} — force() depois de cada lote gravado;</li>
+ *   <li>{@code intervalo} (padrão) — no máximo um force() a cada -Dlivraria.log.fsyncMs (padrão 1000);</li>
+ *   <li>{@code nunca} — deixa para o sistema operacional.</li>
+ * </ul>
+ * No desligamento da JVM o que estiver no buffer é gravado e forçado para o disco.
+ * <p>
+ * A rotação do arquivo (virada do dia / tamanho máximo) também acontece aqui, na
+ * thread do writer, que é quem tem o arquivo aberto; ver {@link LogSegmentos}.
+ */
+public final class AsyncLogAppender {
+
+    enum Fsync { LOTE, INTERVALO, NUNCA }
+
+    private static final AsyncLogAppender INSTANCIA = new AsyncLogAppender(
+            Paths.LOG,
+            LogSegmentos.instancia(),
+            Paths.LOG_MAX_BYTES,
+            Math.max(16, Integer.getInteger("livraria.log.buffer", 8192)),
+            Fsync.valueOf(System.getProperty("livraria.log.fsync", "intervalo").trim().toUpperCase(Locale.ROOT)),
+            Math.max(0, Long.getLong("livraria.log.fsyncMs", 1000)));
+
+    public static AsyncLogAppender instancia() {
+        return INSTANCIA;
+    }
+
+    private final Path arquivo;
+    private final Fsync fsync;
+    private final long fsyncNanos;
+
+    // buffer circular: [cabeca, cabeca + tamanho) com índices módulo capacidade
+    private final LocalDateTime[] horarios;
+    private final String[] mensagens;
+    private int cabeca;
+    private int tamanho;
+
+    // contadores para descarregar(): quantas linhas já entraram / já foram gravadas
+    private long enfileiradas;
+    private long gravadas;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition temLinha = lock.newCondition();
+    private final Condition temVaga = lock.newCondition();
+    private final Condition gravou = lock.newCondition();
+
+    private Thread writer;
+    private boolean encerrado;
+
+    private final LogSegmentos segmentos;
+    private final long maxBytes;
+
+    private FileChannel canal;
+    private LocalDate diaAtivo;
+    private long ultimoForce = System.nanoTime();
+    private boolean sujo;
+
+    AsyncLogAppender(Path arquivo, LogSegmentos segmentos, long maxBytes,
+                     int capacidade, Fsync fsync, long fsyncMs) {
+        this.arquivo = arquivo;
+        this.segmentos = segmentos;
+        this.maxBytes = maxBytes;
+        this.fsync = fsync;
+        this.fsyncNanos = TimeUnit.MILLISECONDS.toNanos(fsyncMs);
+        this.horarios = new LocalDateTime[capacidade];
+        this.mensagens = new String[capacidade];
+    }
+
+    /** Enfileira uma linha; só bloqueia se o buffer estiver cheio. */
+    public void registrar(String mensagem) {
+        LocalDateTime agora = LocalDateTime.now();
+        lock.lock();
+        try {
+            iniciarSeNecessario();
+            colocar(agora, mensagem);
+            temLinha.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Enfileira várias linhas em sequência, sem intercalar com outras threads. */
+    public void registrarTodos(List<String> lista) {
+        if (lista.isEmpty()) return;
+        LocalDateTime agora = LocalDateTime.now();
+        lock.lock();
+        try {
+            iniciarSeNecessario();
+            for (String m : lista) colocar(agora, m);
+            temLinha.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Espera até que tudo que foi registrado antes desta chamada esteja no arquivo
+     * (gravado, não necessariamente forçado). Usado por quem vai ler o log em seguida.
+     */
+    public void descarregar() {
+        lock.lock();
+        try {
+            long alvo = enfileiradas;
+            while (gravadas < alvo && writer != null && writer.isAlive()) {
+                gravou.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ----------------------------------------------------------------- buffer
+
+    private void colocar(LocalDateTime horario, String mensagem) {
+        while (tamanho == mensagens.length) {
+            if (encerrado) return; // JVM saindo e writer parado: descarta
+            temVaga.awaitUninterruptibly();
+        }
+        int i = (cabeca + tamanho) % mensagens.length;
+        horarios[i] = horario;
+        mensagens[i] = mensagem;
+        tamanho++;
+        enfileiradas++;
+    }
+
+    private void iniciarSeNecessario() {
+        if (writer != null) return;
+        writer = new Thread(this::loop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::encerrar, "log-writer-shutdown"));
+    }
+
+    // ----------------------------------------------------------------- writer
+
+    private void loop() {
+        var sb = new StringBuilder(4096);
+        String nl = System.lineSeparator();
+        var loteHorarios = new LocalDateTime[mensagens.length];
+        var loteMensagens = new String[mensagens.length];
+        while (true) {
+            int n;
+            lock.lock();
+            try {
+                while (tamanho == 0 && !encerrado) {
+                    if (sujo && fsync == Fsync.INTERVALO) {
+                        // acorda a tempo de forçar o que ficou pendente
+                        long falta = fsyncNanos - (System.nanoTime() - ultimoForce);
+                        if (falta <= 0) break;
+                        temLinha.awaitNanos(falta);
+                    } else {
+                        temLinha.await();
+                    }
+                }
+                if (tamanho == 0 && encerrado) return;
+
+                // drena tudo que está no buffer de uma vez
+                n = tamanho;
+                for (int k = 0; k < n; k++) {
+                    int i = (cabeca + k) % mensagens.length;
+                    loteHorarios[k] = horarios[i];
+                    loteMensagens[k] = mensagens[i];
+                    horarios[i] = null;
+                    mensagens[i] = null;
+                }
+                cabeca = (cabeca + n) % mensagens.length;
+                tamanho = 0;
+                temVaga.signalAll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                // um write por dia presente no lote (normalmente um só); a virada do dia rotaciona
+                int ini = 0;
+                while (ini < n) {
+                    LocalDate dia = loteHorarios[ini].toLocalDate();
+                    prepararArquivo(dia);
+                    sb.setLength(0);
+                    int fim = ini;
+                    while (fim < n && loteHorarios[fim].toLocalDate().equals(dia)) {
+                        sb.append(loteHorarios[fim]).append(" - ").append(loteMensagens[fim]).append(nl);
+                        fim++;
+                    }
+                    escrever(sb);
+                    ini = fim;
+                }
+                forcarSeNecessario();
+            } catch (IOException e) {
+                System.err.println("Erro ao escrever log: " + e.getMessage());
+                fecharCanal();
+            } finally {
+                Arrays.fill(loteMensagens, 0, n, null);
+            }
+
+            lock.lock();
+            try {
+                gravadas += n;
+                gravou.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Abre o segmento ativo se preciso e rotaciona se o dia mudou ou ele passou do tamanho máximo. */
+    private void prepararArquivo(LocalDate dia) throws IOException {
+        if (canal == null) {
+            abrirCanal();
+            diaAtivo = segmentos == null ? null : segmentos.diaDoAtivo();
+        }
+        if (segmentos != null && diaAtivo != null && (!dia.equals(diaAtivo) || canal.size() >= maxBytes)) {
+            canal.force(false);
+            fecharCanal();
+            segmentos.rotacionar();
+            abrirCanal();
+            sujo = false;
+        }
+        if (diaAtivo == null || canal.size() == 0) diaAtivo = dia;
+    }
+
+    private void abrirCanal() throws IOException {
+        if (arquivo.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(arquivo.toAbsolutePath().getParent());
+        }
+        canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void escrever(CharSequence linhas) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(linhas.toString().getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) canal.write(buf);
+        sujo = true;
+    }
+
+    private void forcarSeNecessario() throws IOException {
+        if (!sujo || canal == null) return;
+        boolean forcar = switch (fsync) {
+            case LOTE -> true;
+            case INTERVALO -> System.nanoTime() - ultimoForce >= fsyncNanos;
+            case NUNCA -> false;
+        };
+        if (forcar) {
+            canal.force(false);
+            ultimoForce = System.nanoTime();
+            sujo = false;
+        }
+    }
+
+    private void fecharCanal() {
+        if (canal == null) return;
+        try {
+            canal.close();
+        } catch (IOException ignored) {
+            // vai reabrir na próxima escrita
+        }
+        canal = null;
+    }
+
+    /** Shutdown hook: para de aceitar espera, grava o restante e força para o disco. */
+    private void encerrar() {
+        Thread w;
+        lock.lock();
+        try {
+            encerrado = true;
+            temLinha.signalAll();
+            w = writer;
+        } finally {
+            lock.unlock();
+        }
+        if (w == null) return;
+        try {
+            w.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (canal != null) canal.force(false);
+        } catch (IOException ignored) {
+            // melhor esforço no desligamento
+        }
+        fecharCanal();
+    }
+}
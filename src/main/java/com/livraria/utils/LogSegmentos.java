@@ -0,0 +1,514 @@
+package com.livraria.utils;
+
+import com.livraria.shared.utils.DurableWriter;
+import com.livraria.shared.utils.Paths;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Segmentos do log de ações.
+ * <p>
+ * O log_acoes.txt é só o segmento ativo. Quando o {@link AsyncLogAppender} vira o dia
+ * (ou o arquivo passa de -Dlivraria.log.maxMB), chama {@link #rotacionar()}: o conteúdo
+ * é quebrado por dia em arquivos gzip (data/log/log_acoes-AAAA-MM-DD.txt.gz) e cada um
+ * entra no catálogo data/log/segmentos.csv com o primeiro e o último timestamp.
+ * <p>
+ * {@link #linhas(LocalDate, LocalDate)} usa o catálogo para abrir só os segmentos que
+ * cruzam o período pedido, mais o ativo.
+ */
+public final class LogSegmentos {
+
+    /** Um segmento fechado; o caminho é relativo à pasta de segmentos. */
+    public record Segmento(String arquivo, LocalDateTime primeiro, LocalDateTime ultimo, long linhas) {
+        public boolean sobrepoe(LocalDate de, LocalDate ate) {
+            return (de == null || !ultimo.toLocalDate().isBefore(de))
+                    && (ate == null || !primeiro.toLocalDate().isAfter(ate));
+        }
+    }
+
+    private static final String CABECALHO = "arquivo,primeiro,ultimo,linhas";
+    private static final String PREFIXO = "log_acoes-";
+    private static final String SUFIXO = ".txt.gz";
+
+    private static final LogSegmentos INSTANCIA =
+            new LogSegmentos(Paths.LOG, Paths.LOG_SEGMENTOS, Paths.LOG_CATALOGO);
+
+    public static LogSegmentos instancia() {
+        return INSTANCIA;
+    }
+
+    private final Path ativo;
+    private final Path dir;
+    private final Path catalogo;
+    private final Path emRotacao;
+
+    // leitores seguram o read lock só para fotografar o catálogo e abrir o ativo;
+    // a rotação segura o write lock do rename até o catálogo novo estar gravado
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    private volatile List<Segmento> segmentos = List.of();
+
+    LogSegmentos(Path ativo, Path dir, Path catalogo) {
+        this.ativo = ativo;
+        this.dir = dir;
+        this.catalogo = catalogo;
+        this.emRotacao = ativo.resolveSibling(ativo.getFileName() + ".rotacionando");
+        try {
+            carregar();
+            if (Files.exists(emRotacao)) {
+                concluirRotacao(); // a JVM caiu no meio de uma rotação
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao carregar segmentos do log", e);
+        }
+    }
+
+    public List<Segmento> listar() {
+        return segmentos;
+    }
+
+    /**
+     * Linhas dos segmentos que cruzam [de, ate] (nulos = sem limite) seguidas das do
+     * segmento ativo, em ordem cronológica. O stream precisa ser fechado.
+     */
+    public Stream<String> linhas(LocalDate de, LocalDate ate) throws IOException {
+        List<Segmento> selecionados;
+        BufferedReader leitorAtivo = null;
+        rw.readLock().lock();
+        try {
+            selecionados = segmentos.stream().filter(s -> s.sobrepoe(de, ate)).toList();
+            // o ativo é aberto já: se ele rotacionar depois, o descritor continua lendo o conteúdo antigo
+            if (Files.exists(ativo)) {
+                LocalDateTime inicio = primeiroTimestamp(ativo);
+                if (ate == null || inicio == null || !inicio.toLocalDate().isAfter(ate)) {
+                    leitorAtivo = Files.newBufferedReader(ativo, StandardCharsets.UTF_8);
+                }
+            }
+        } finally {
+            rw.readLock().unlock();
+        }
+
+        // segmentos fechados nunca mudam, então podem ser abertos sob demanda
+        Stream<String> fechados = selecionados.stream().flatMap(s -> {
+            try {
+                BufferedReader r = abrirSegmento(dir.resolve(s.arquivo()));
+                return r.lines().onClose(() -> fechar(r));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (leitorAtivo == null) return fechados;
+        BufferedReader r = leitorAtivo;
+        return Stream.concat(fechados, r.lines().onClose(() -> fechar(r)));
+    }
+
+    /** Leitor que acompanha o log desde o começo; ver {@link Seguidor#lerNovas}. */
+    public Seguidor seguir() {
+        return new Seguidor();
+    }
+
+    /**
+     * Arquivos do log num instante: os segmentos fechados que cruzam o período e o
+     * ativo até a última quebra de linha (tamanhoAtivo; 0 se não há ativo no período).
+     */
+    public record Fotografia(List<Path> segmentos, Path ativo, long tamanhoAtivo) {}
+
+    public interface ComFotografia<T> {
+        T executar(Fotografia f) throws IOException;
+    }
+
+    /**
+     * Roda {@code acao} sobre os arquivos de [de, ate] (nulos = sem limite) com a
+     * rotação bloqueada, para que ninguém renomeie o ativo no meio da leitura. Usado
+     * pelas varreduras em paralelo (ver {@link ScannerParalelo}).
+     */
+    public <T> T fotografar(LocalDate de, LocalDate ate, ComFotografia<T> acao) throws IOException {
+        rw.readLock().lock();
+        try {
+            var paths = segmentos.stream().filter(s -> s.sobrepoe(de, ate))
+                    .map(s -> dir.resolve(s.arquivo())).toList();
+            long tamanho = 0;
+            if (Files.exists(ativo)) {
+                LocalDateTime inicio = primeiroTimestamp(ativo);
+                if (ate == null || inicio == null || !inicio.toLocalDate().isAfter(ate)) {
+                    tamanho = fimAlinhado(ativo);
+                }
+            }
+            return acao.executar(new Fotografia(paths, ativo, tamanho));
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    /**
+     * Seguidor que já considera lido tudo o que está em {@code f} (tirada sem filtro
+     * de período); {@code linhasAtivo} é quantas linhas não vazias havia no ativo.
+     * Precisa ser chamado de dentro do próprio {@link #fotografar}.
+     */
+    public Seguidor seguirDepoisDe(Fotografia f, long linhasAtivo) {
+        var s = new Seguidor();
+        for (Path p : f.segmentos()) s.lidos.add(p.getFileName().toString());
+        s.offset = f.tamanhoAtivo();
+        s.linhasAtivo = linhasAtivo;
+        return s;
+    }
+
+    /**
+     * Acompanha o log como um "tail -f": cada {@link #lerNovas} entrega só as linhas
+     * (não vazias, completas) que apareceram desde a chamada anterior.
+     * <p>
+     * No segmento ativo guarda o offset em bytes. Se o ativo rotacionou no meio do
+     * caminho, as linhas dele estão agora nos segmentos novos do catálogo: pula as
+     * que já tinham sido entregues e segue do começo do ativo novo.
+     */
+    public final class Seguidor {
+        private final Set<String> lidos = new HashSet<>();
+        private long offset;
+        private long linhasAtivo;
+
+        private Seguidor() {}
+
+        public synchronized void lerNovas(Consumer<String> destino) throws IOException {
+            rw.readLock().lock();
+            try {
+                var novos = segmentos.stream().filter(s -> !lidos.contains(s.arquivo())).toList();
+                if (!novos.isEmpty()) {
+                    long pular = linhasAtivo;
+                    for (var s : novos) {
+                        try (BufferedReader r = abrirSegmento(dir.resolve(s.arquivo()))) {
+                            String l;
+                            while ((l = r.readLine()) != null) {
+                                if (l.isBlank()) continue;
+                                if (pular > 0) { pular--; continue; }
+                                destino.accept(l);
+                            }
+                        }
+                        lidos.add(s.arquivo());
+                    }
+                    offset = 0;
+                    linhasAtivo = 0;
+                }
+                lerAtivo(destino);
+            } finally {
+                rw.readLock().unlock();
+            }
+        }
+
+        private void lerAtivo(Consumer<String> destino) throws IOException {
+            if (!Files.exists(ativo)) return;
+            try (FileChannel ch = FileChannel.open(ativo, StandardOpenOption.READ)) {
+                long fim = ch.size();
+                if (fim < offset) { // truncado por fora: recomeça
+                    offset = 0;
+                    linhasAtivo = 0;
+                }
+                if (fim == offset) return;
+
+                var buf = ByteBuffer.allocate((int) Math.min(fim - offset, 1 << 20));
+                var pendente = new ByteArrayOutputStream();
+                long pos = offset;
+                while (pos < fim) {
+                    buf.clear();
+                    int n = ch.read(buf, pos);
+                    if (n <= 0) break;
+                    pos += n;
+                    byte[] a = buf.array();
+                    int ini = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (a[i] != '\n') continue;
+                        pendente.write(a, ini, i - ini);
+                        offset += pendente.size() + 1;
+                        String l = pendente.toString(StandardCharsets.UTF_8);
+                        pendente.reset();
+                        if (l.endsWith("\r")) l = l.substring(0, l.length() - 1);
+                        if (!l.isBlank()) {
+                            linhasAtivo++;
+                            destino.accept(l);
+                        }
+                        ini = i + 1;
+                    }
+                    pendente.write(a, ini, n - ini); // linha ainda sem '\n': fica para a próxima leitura
+                }
+            }
+        }
+    }
+
+    /** Dia da primeira linha do segmento ativo, ou null se ele está vazio/não existe. */
+    LocalDate diaDoAtivo() {
+        LocalDateTime ts = primeiroTimestamp(ativo);
+        return ts == null ? null : ts.toLocalDate();
+    }
+
+    /**
+     * Fecha o segmento ativo. Quem chama (o writer do log) precisa ter fechado o
+     * canal dele antes; o próximo append recria o log_acoes.txt.
+     */
+    void rotacionar() throws IOException {
+        rw.writeLock().lock();
+        try {
+            if (!Files.exists(ativo)) return;
+            mover(ativo, emRotacao);
+            concluirRotacao();
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+    /** Timestamp no início de uma linha "timestamp - mensagem", ou null. */
+    public static LocalDateTime timestamp(String linha) {
+        int sep = linha.indexOf(" - ");
+        if (sep <= 0) return null;
+        try {
+            return LocalDateTime.parse(linha.substring(0, sep).trim());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // ----------------------------------------------------------------- rotação
+
+    private void concluirRotacao() throws IOException {
+        // se o processo caiu depois de gravar o catálogo, os segmentos já existem
+        LocalDateTime inicio = primeiroTimestamp(emRotacao);
+        if (inicio != null && segmentos.stream().anyMatch(s -> s.primeiro().equals(inicio))) {
+            Files.deleteIfExists(emRotacao);
+            return;
+        }
+
+        var novos = comprimirPorDia(emRotacao);
+        if (!novos.isEmpty()) {
+            var todos = new ArrayList<>(segmentos);
+            todos.addAll(novos);
+            todos.sort(Comparator.comparing(Segmento::primeiro).thenComparing(Segmento::arquivo));
+            gravarCatalogo(todos);
+            segmentos = List.copyOf(todos);
+        }
+        Files.deleteIfExists(emRotacao);
+    }
+
+    /**
+     * Quebra o arquivo em um gzip por dia. Linhas sem timestamp vão junto com o dia
+     * da linha anterior (as do começo, com o primeiro dia encontrado).
+     */
+    private List<Segmento> comprimirPorDia(Path origem) throws IOException {
+        Files.createDirectories(dir);
+        var prontos = new ArrayList<Segmento>();
+        var semData = new ArrayList<String>();
+        SegmentoEmEscrita atual = null;
+        try (BufferedReader in = Files.newBufferedReader(origem, StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = in.readLine()) != null) {
+                if (linha.isBlank()) continue;
+                LocalDateTime ts = timestamp(linha);
+                if (ts == null) {
+                    if (atual == null) semData.add(linha);
+                    else atual.escrever(linha, null);
+                    continue;
+                }
+                if (atual == null || !atual.dia.equals(ts.toLocalDate())) {
+                    if (atual != null) prontos.add(atual.fechar());
+                    atual = new SegmentoEmEscrita(ts.toLocalDate());
+                    for (String s : semData) atual.escrever(s, null);
+                    semData.clear();
+                }
+                atual.escrever(linha, ts);
+            }
+            if (atual != null) prontos.add(atual.fechar());
+        } catch (IOException | RuntimeException e) {
+            if (atual != null) atual.descartar();
+            throw e;
+        }
+        return prontos;
+    }
+
+    private final class SegmentoEmEscrita {
+        final LocalDate dia;
+        final Path tmp;
+        final FileChannel canal;
+        final GZIPOutputStream gz;
+        final BufferedWriter out;
+        LocalDateTime primeiro, ultimo;
+        long linhas;
+
+        SegmentoEmEscrita(LocalDate dia) throws IOException {
+            this.dia = dia;
+            this.tmp = dir.resolve(PREFIXO + dia + SUFIXO + ".tmp");
+            this.canal = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.gz = new GZIPOutputStream(Channels.newOutputStream(canal), 64 * 1024);
+            this.out = new BufferedWriter(new OutputStreamWriter(gz, StandardCharsets.UTF_8));
+        }
+
+        void escrever(String linha, LocalDateTime ts) throws IOException {
+            out.write(linha);
+            out.write(System.lineSeparator());
+            linhas++;
+            if (ts != null) {
+                if (primeiro == null || ts.isBefore(primeiro)) primeiro = ts;
+                if (ultimo == null || ts.isAfter(ultimo)) ultimo = ts;
+            }
+        }
+
+        Segmento fechar() throws IOException {
+            out.flush();
+            gz.finish();
+            canal.force(true);
+            out.close();
+            Path destino = nomeLivre(dia);
+            mover(tmp, destino);
+            return new Segmento(destino.getFileName().toString(), primeiro, ultimo, linhas);
+        }
+
+        void descartar() {
+            LogSegmentos.fechar(out);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // sobra um .tmp, sem efeito no catálogo
+            }
+        }
+    }
+
+    private Path nomeLivre(LocalDate dia) {
+        Path p = dir.resolve(PREFIXO + dia + SUFIXO);
+        for (int n = 2; Files.exists(p); n++) {
+            p = dir.resolve(PREFIXO + dia + "-" + n + SUFIXO);
+        }
+        return p;
+    }
+
+    // ----------------------------------------------------------------- catálogo
+
+    private void carregar() throws IOException {
+        if (Files.exists(catalogo)) {
+            var lista = new ArrayList<Segmento>();
+            for (String l : Files.readAllLines(catalogo, StandardCharsets.UTF_8)) {
+                if (l.isBlank() || l.startsWith("arquivo,")) continue;
+                String[] p = l.split(",");
+                if (p.length < 4) continue;
+                lista.add(new Segmento(p[0], LocalDateTime.parse(p[1]), LocalDateTime.parse(p[2]), Long.parseLong(p[3])));
+            }
+            segmentos = List.copyOf(lista);
+        } else if (Files.isDirectory(dir)) {
+            reconstruirCatalogo();
+        }
+    }
+
+    /** Sem catálogo mas com segmentos na pasta: relê os gzips para recuperar os intervalos. */
+    private void reconstruirCatalogo() throws IOException {
+        var lista = new ArrayList<Segmento>();
+        try (var arquivos = Files.list(dir)) {
+            for (Path p : arquivos.filter(f -> f.getFileName().toString().endsWith(SUFIXO)).sorted().toList()) {
+                LocalDateTime primeiro = null, ultimo = null;
+                long n = 0;
+                try (BufferedReader r = abrirSegmento(p)) {
+                    String l;
+                    while ((l = r.readLine()) != null) {
+                        if (l.isBlank()) continue;
+                        n++;
+                        LocalDateTime ts = timestamp(l);
+                        if (ts == null) continue;
+                        if (primeiro == null || ts.isBefore(primeiro)) primeiro = ts;
+                        if (ultimo == null || ts.isAfter(ultimo)) ultimo = ts;
+                    }
+                }
+                if (primeiro != null) lista.add(new Segmento(p.getFileName().toString(), primeiro, ultimo, n));
+            }
+        }
+        if (lista.isEmpty()) return;
+        lista.sort(Comparator.comparing(Segmento::primeiro).thenComparing(Segmento::arquivo));
+        gravarCatalogo(lista);
+        segmentos = List.copyOf(lista);
+    }
+
+    private void gravarCatalogo(List<Segmento> lista) {
+        var linhas = new ArrayList<String>(lista.size() + 1);
+        linhas.add(CABECALHO);
+        for (var s : lista) {
+            linhas.add(s.arquivo() + "," + s.primeiro() + "," + s.ultimo() + "," + s.linhas());
+        }
+        DurableWriter.instancia().gravar(catalogo, linhas);
+    }
+
+    // ----------------------------------------------------------------- helpers
+
+    private static BufferedReader abrirSegmento(Path p) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(p), 64 * 1024), StandardCharsets.UTF_8));
+    }
+
+    private static LocalDateTime primeiroTimestamp(Path arquivo) {
+        if (!Files.exists(arquivo)) return null;
+        try (BufferedReader r = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            String l;
+            while ((l = r.readLine()) != null) {
+                LocalDateTime ts = timestamp(l);
+                if (ts != null) return ts;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /** Tamanho do arquivo até o último '\n' (uma linha ainda sendo escrita fica de fora). */
+    private static long fimAlinhado(Path arquivo) throws IOException {
+        try (FileChannel ch = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            var buf = ByteBuffer.allocate(8192);
+            long fim = ch.size();
+            while (fim > 0) {
+                long ini = Math.max(0, fim - buf.capacity());
+                buf.clear().limit((int) (fim - ini));
+                while (buf.hasRemaining() && ch.read(buf, ini + buf.position()) > 0) { }
+                for (int i = buf.position() - 1; i >= 0; i--) {
+                    if (buf.get(i) == '\n') return ini + i + 1;
+                }
+                fim = ini;
+            }
+            return 0;
+        }
+    }
+
+    private static void mover(Path de, Path para) throws IOException {
+        try {
+            Files.move(de, para, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(de, para, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void fechar(AutoCloseable c) {
+        try {
+            c.close();
+        } catch (Exception ignored) {
+            // leitura/escrita já terminou
+        }
+    }
+}
@@ -1,24 +1,23 @@
 package com.livraria.utils;
 
-import com.livraria.shared.utils.Paths;
-
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.time.LocalDateTime;
+import java.util.List;
 
+/**
+ * Log de ações. As linhas vão para o {@link AsyncLogAppender}: a requisição não
+ * espera pela escrita em disco.
+ */
 public class LoggerUtils {
     public void registrar(String mensagem) {
-        try {
-            // garante que a pasta do log exista
-            if (Paths.LOG.getParent() != null) {
-                Files.createDirectories(Paths.LOG.getParent());
-            }
-            try (FileWriter fw = new FileWriter(Paths.LOG.toFile(), true)) {
-                fw.write(LocalDateTime.now() + " - " + mensagem + System.lineSeparator());
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Erro ao escrever log", e);
-        }
+        AsyncLogAppender.instancia().registrar(mensagem);
+    }
+
+    /** Registra várias mensagens em sequência (ex.: compra em lote). */
+    public void registrarTodos(List<String> mensagens) {
+        AsyncLogAppender.instancia().registrarTodos(mensagens);
+    }
+
+    /** Garante que tudo que já foi registrado está no arquivo (antes de ler o log). */
+    public static void descarregar() {
+        AsyncLogAppender.instancia().descarregar();
     }
 }
@@ -0,0 +1,184 @@
+package com.livraria.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Carga inicial do log de ações usando todos os núcleos (a do {@code EventoStore};
+ * as consultas depois saem da memória, e a exportação lê em sequência com memória constante).
+ * <p>
+ * O trabalho é dividido em unidades: cada segmento gzip inteiro (gzip não deixa
+ * começar no meio) e pedaços de ~-Dlivraria.scan.pedacoMB (padrão 4) do ativo,
+ * cortados sempre logo depois de um '\n'. As unidades são lidas e interpretadas
+ * em paralelo num {@link ForkJoinPool} de -Dlivraria.scan.threads threads
+ * (padrão: número de processadores) e entregues na ordem do log.
+ * <p>
+ * Linhas em branco são ignoradas e um '\r' no fim é removido, como no
+ * {@link LogSegmentos.Seguidor}.
+ */
+public final class ScannerParalelo {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(1, Integer.getInteger("livraria.scan.threads", Runtime.getRuntime().availableProcessors())));
+    private static final long TAM_PEDACO =
+            Math.max(1, Long.getLong("livraria.scan.pedacoMB", 4)) * 1024 * 1024;
+
+    /** Um segmento gzip inteiro ou um trecho [inicio, fim) do ativo. */
+    private record Unidade(Path arquivo, boolean gzip, long inicio, long fim) {}
+
+    /**
+     * Linhas de uma unidade já interpretadas (um item por linha não vazia, nulo se
+     * {@code interpretar} devolveu nulo) e o tamanho em bytes UTF-8 de cada uma.
+     */
+    public record Pedaco<T>(List<T> itens, int[] bytes, boolean doAtivo) {}
+
+    private ScannerParalelo() {}
+
+    /**
+     * Interpreta todas as linhas de {@code f} e entrega os pedaços ao destino na
+     * ordem do log, à medida que ficam prontos. No máximo algumas unidades por
+     * thread ficam à frente do destino, então a memória não cresce com o log.
+     * Cada unidade pede um interpretador ao {@code interpretador} e o usa em todas
+     * as suas linhas (o interpretador pode guardar estado: só uma thread o usa).
+     *
+     * @return quantas linhas não vazias havia no ativo
+     */
+    public static <T> long carregarEmOrdem(LogSegmentos.Fotografia f, Supplier<? extends Function<String, T>> interpretador,
+                                           Consumer<Pedaco<T>> destino) throws IOException {
+        var unidades = dividir(f);
+        int janela = POOL.getParallelism() * 2;
+        var pendentes = new ArrayDeque<ForkJoinTask<Pedaco<T>>>();
+        long linhasAtivo = 0;
+        int proxima = 0;
+        try {
+            while (proxima < unidades.size() || !pendentes.isEmpty()) {
+                while (proxima < unidades.size() && pendentes.size() < janela) {
+                    var u = unidades.get(proxima++);
+                    pendentes.add(POOL.submit(() -> interpretarUnidade(u, interpretador.get())));
+                }
+                var p = juntar(pendentes.poll());
+                if (p.doAtivo()) linhasAtivo += p.itens().size();
+                destino.accept(p);
+            }
+        } finally {
+            for (var t : pendentes) t.cancel(false);
+        }
+        return linhasAtivo;
+    }
+
+    // ----------------------------------------------------------------- unidades
+
+    private static List<Unidade> dividir(LogSegmentos.Fotografia f) throws IOException {
+        var unidades = new ArrayList<Unidade>();
+        for (Path p : f.segmentos()) unidades.add(new Unidade(p, true, 0, -1));
+        long tamanho = f.tamanhoAtivo();
+        if (tamanho == 0) return unidades;
+        try (FileChannel ch = FileChannel.open(f.ativo(), StandardOpenOption.READ)) {
+            long ini = 0;
+            while (ini < tamanho) {
+                long fim = ini + TAM_PEDACO >= tamanho ? tamanho : depoisDaQuebra(ch, ini + TAM_PEDACO, tamanho);
+                unidades.add(new Unidade(f.ativo(), false, ini, fim));
+                ini = fim;
+            }
+        }
+        return unidades;
+    }
+
+    /** Posição logo depois do primeiro '\n' a partir de pos (ou limite, se não houver). */
+    private static long depoisDaQuebra(FileChannel ch, long pos, long limite) throws IOException {
+        var buf = ByteBuffer.allocate(8192);
+        while (pos < limite) {
+            buf.clear().limit((int) Math.min(buf.capacity(), limite - pos));
+            int n = ch.read(buf, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return limite;
+    }
+
+    private static <T> Pedaco<T> interpretarUnidade(Unidade u, Function<String, T> interpretar) throws IOException {
+        var linhas = new ArrayList<String>();
+        lerLinhas(u, linhas::add);
+        var itens = new ArrayList<T>(linhas.size());
+        int[] bytes = new int[linhas.size()];
+        for (int i = 0; i < bytes.length; i++) {
+            String l = linhas.get(i);
+            bytes[i] = bytesUtf8(l);
+            itens.add(interpretar.apply(l));
+        }
+        return new Pedaco<>(itens, bytes, !u.gzip());
+    }
+
+    private static void lerLinhas(Unidade u, Consumer<String> destino) throws IOException {
+        if (u.gzip()) {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(u.arquivo()), 64 * 1024), StandardCharsets.UTF_8))) {
+                String l;
+                while ((l = r.readLine()) != null) {
+                    if (!l.isBlank()) destino.accept(l);
+                }
+            }
+            return;
+        }
+        // o trecho cabe num array: termina sempre logo depois de um '\n'
+        byte[] a = new byte[(int) (u.fim() - u.inicio())];
+        try (FileChannel ch = FileChannel.open(u.arquivo(), StandardOpenOption.READ)) {
+            var buf = ByteBuffer.wrap(a);
+            while (buf.hasRemaining() && ch.read(buf, u.inicio() + buf.position()) > 0) { }
+        }
+        int ini = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != '\n') continue;
+            int fim = i > ini && a[i - 1] == '\r' ? i - 1 : i;
+            String l = new String(a, ini, fim - ini, StandardCharsets.UTF_8);
+            if (!l.isBlank()) destino.accept(l);
+            ini = i + 1;
+        }
+    }
+
+    private static <T> T juntar(ForkJoinTask<T> tarefa) throws IOException {
+        try {
+            return tarefa.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+
+    /** Tamanho em UTF-8 sem codificar a string (base do offset lógico do relatório). */
+    public static int bytesUtf8(String s) {
+        int b = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) b += 1;
+            else if (c < 0x800) b += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                b += 4;
+                i++;
+            } else b += 3;
+        }
+        return b;
+    }
+}
@@ -0,0 +1,117 @@
+package com.livraria;
+
+import com.livraria.models.LogEntry.Tipo;
+import com.livraria.services.relatorio.DecodificadorEvento;
+import com.livraria.services.relatorio.EventoParser;
+import com.livraria.services.relatorio.EventoStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DecodificadorEventoTest {
+
+    private final DecodificadorEvento d = new DecodificadorEvento();
+
+    @Test
+    void formatoNovo_compraComTodosOsCampos() {
+        assertTrue(d.decodificar("2025-12-10T01:21:46.329941 - COMPRA|cliente=Fulano da Silva|livro=1984|qtd=2|antes=5|depois=3|preco=19,90"));
+        var e = d.evento();
+        assertEquals(LocalDateTime.of(2025, 12, 10, 1, 21, 46, 329_941_000), e.timestamp());
+        assertEquals("COMPRA", e.tipo());
+        assertEquals("Fulano da Silva", e.cliente());
+        assertEquals("1984", e.livro());
+        assertEquals(2, e.quantidade());
+        assertEquals(5, e.estoqueAntes());
+        assertEquals(3, e.estoqueDepois());
+        assertEquals(19.90, e.preco());
+
+        var entrada = d.entrada();
+        assertEquals(Tipo.COMPRA, entrada.getTipo());
+        assertEquals(2, entrada.getQuantidade());
+    }
+
+    @Test
+    void formatoNovo_tipoForaDoEnumViraDesconhecido() {
+        assertTrue(d.decodificar("2025-12-10T01:21:46 - CRIACAO_CLIENTE|id=3|nome=Novo|email=novo@email"));
+        assertEquals("CRIACAO_CLIENTE", d.evento().tipo());
+        assertEquals(Tipo.DESCONHECIDO, d.entrada().getTipo());
+        assertNull(d.entrada().getCliente());
+    }
+
+    @Test
+    void formatoAntigo_compra() {
+        assertTrue(d.decodificar("2025-11-09T10:00:00 - AÇÃO: Compra | Livro: 'Dom Casmurro' | Cliente: José | Qtd: 2 | Estoque: 10 -> 8"));
+        var e = d.entrada();
+        assertEquals(Tipo.COMPRA, e.getTipo());
+        assertEquals("Dom Casmurro", e.getLivro());
+        assertEquals("José", e.getCliente());
+        assertEquals(2, e.getQuantidade());
+        assertEquals(10, e.getEstoqueAntes());
+        assertEquals(8, e.getEstoqueDepois());
+        assertEquals("COMPRA", d.evento().tipo());
+    }
+
+    @Test
+    void formatoAntigo_demaisTipos() {
+        assertTrue(d.decodificar("2025-11-09T10:00:00 - CRIAÇÃO: Livro 'Iracema' (id=4), qtd=3)"));
+        assertEquals(Tipo.CRIACAO, d.entrada().getTipo());
+        assertEquals("Iracema", d.entrada().getLivro());
+        assertEquals(3, d.entrada().getQuantidade());
+
+        assertTrue(d.decodificar("2025-11-09T10:00:00 - ATUALIZAÇÃO: Livro id=4 agora qtd=7"));
+        assertEquals(Tipo.ATUALIZACAO, d.entrada().getTipo());
+        assertEquals(7, d.entrada().getQuantidade());
+
+        assertTrue(d.decodificar("2025-11-09T10:00:00 - EXCLUSÃO: Livro id=4 removido"));
+        assertEquals(Tipo.EXCLUSAO, d.entrada().getTipo());
+
+        assertTrue(d.decodificar("2025-11-09T10:00:00 - TENTATIVA EXCLUSÃO BLOQUEADA: estoque > 0"));
+        assertEquals(Tipo.BLOQUEADA, d.entrada().getTipo());
+    }
+
+    @Test
+    void formatoAntigoIncompleto_ficaComoTexto() {
+        assertTrue(d.decodificar("2025-11-09T10:00:00 - AÇÃO: Compra | Livro: 'X' | Qtd: 2"));
+        assertEquals("AÇÃO: Compra", d.evento().tipo());
+        assertEquals(Tipo.DESCONHECIDO, d.entrada().getTipo());
+    }
+
+    @Test
+    void semSeparador_naoEhEvento_eDataInvalidaFicaNula() {
+        assertFalse(d.decodificar("linha solta"));
+        assertTrue(d.decodificar("2025-02-30T10:00:00 - COMPRA|qtd=1"));
+        assertNull(d.evento().timestamp());
+        assertTrue(d.decodificar("2025-11-09T10:00 - COMPRA|qtd=1"));
+        assertEquals(LocalDateTime.of(2025, 11, 9, 10, 0), d.evento().timestamp());
+    }
+
+    @Test
+    void filtro_testadoSemMontarEvento() {
+        assertTrue(d.decodificar("2025-11-09T10:00:00 - COMPRA|cliente=Maria Souza|livro=1984|qtd=1"));
+        assertTrue(d.aceita(new EventoStore.Filtro("compra", "souza", "", null, null)));
+        assertFalse(d.aceita(new EventoStore.Filtro("", "", "dom", null, null)));
+        assertFalse(d.aceita(new EventoStore.Filtro("", "", "", LocalDate.of(2025, 11, 10), null)));
+        assertTrue(d.aceita(new EventoStore.Filtro("", "", "", null, LocalDate.of(2025, 11, 9))));
+    }
+
+    @Test
+    void interpretadorReaproveitado_naoVazaCamposDaLinhaAnterior() {
+        var linhas = List.of(
+                "2025-12-10T01:21:46 - COMPRA|cliente=Fulano|livro=1984|qtd=2|antes=5|depois=3|preco=19,90",
+                "2025-12-10T01:22:00 - EXCLUSAO|id=4",
+                "linha sem separador",
+                "2025-01-02T08:00:00 - AÇÃO: Compra | Livro: 'Iracema' | Cliente: Ana | Qtd: 1 | Estoque: 2 -> 1",
+                "data-ruim - CRIACAO|livro=Novo|qtd=1");
+        var interpretar = EventoParser.interpretador();
+        for (String l : linhas) {
+            assertEquals(EventoParser.interpretar(l), interpretar.apply(l), l);
+        }
+    }
+}
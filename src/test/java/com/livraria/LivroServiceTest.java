@@ -1,9 +1,23 @@
 package com.livraria;
 
+import com.livraria.models.Livro;
+import com.livraria.services.CatalogoOrdenado;
 import com.livraria.services.LivroService;
+import com.livraria.services.TituloAmbiguoException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class LivroServiceTest {
@@ -27,4 +41,168 @@ public class LivroServiceTest {
                 () -> service.comprar("1984", "Fulano", 999));
         assertTrue(e.getMessage().toLowerCase().contains("estoque"));
     }
+
+    @Test
+    void busca_ignoraAcentosECaixa_eExigeTodosOsTermos() {
+        var service = new LivroService();
+        assertEquals("O Senhor dos Anéis", service.buscar("ANEIS", 10).get(0).getTitulo());
+        assertEquals(1, service.buscar("senhor tolk", 10).size());
+        assertTrue(service.buscar("senhor machado", 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> service.buscar("  !? ", 10));
+
+        // mais de 127 termos distintos na consulta
+        String longo = String.join(" ", java.util.stream.IntStream.range(0, 200).mapToObj(i -> "p" + i).toList());
+        service.criar(new Livro(0, longo, "Fulano", 1, 10.0));
+        assertEquals(1, service.buscar(longo, 10).size());
+    }
+
+    @Test
+    void busca_tituloPesaMaisQueAutor_eAcompanhaAlteracoes() {
+        var service = new LivroService();
+        var assis = service.criar(new Livro(0, "Memórias de Assis", "Fulano", 1, 10.0));
+        var machado = service.criar(new Livro(0, "Quincas Borba", "Machado de Assis", 1, 10.0));
+
+        var achados = service.buscar("assis", 10);
+        assertEquals(assis.getId(), achados.get(0).getId()); // no título vem antes
+        assertEquals(3, achados.size());
+
+        service.atualizar(machado.getId(), new Livro(machado.getId(), "Quincas Borba", "Outro Autor", 1, 10.0));
+        assertEquals(2, service.buscar("assis", 10).size());
+        assertEquals(1, service.buscar("outro", 10).size());
+
+        service.excluir(assis.getId());
+        assertEquals(List.of(2), service.buscar("assis", 10).stream().map(Livro::getId).toList());
+    }
+
+    @Test
+    void sugestoes_porPrefixoNormalizado_maiorEstoquePrimeiro() {
+        var service = new LivroService();
+        service.criar(new Livro(0, "O Senhor das Moscas", "William Golding", 10, 39.90));
+        service.criar(new Livro(0, "O Sertão", "Fulano", 1, 10.0));
+
+        var titulos = service.sugerir("  o   SEN", 10).stream().map(Livro::getTitulo).toList();
+        assertEquals(List.of("O Senhor das Moscas", "O Senhor dos Anéis"), titulos);
+
+        // compra baixa o estoque e muda a ordem
+        service.comprar("O Senhor das Moscas", "Fulano", 8);
+        assertEquals("O Senhor dos Anéis", service.sugerir("o sen", 10).get(0).getTitulo());
+        assertEquals(1, service.sugerir("o se", 1).size());
+        assertTrue(service.sugerir("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void paginaOrdenada_filtraPorPrecoEEstoque_eAcompanhaCompras() {
+        var service = new LivroService();
+        service.criar(new Livro(0, "Caro", "Fulano", 1, 999.0));
+        var semFiltro = new CatalogoOrdenado.Filtro(null, null, false);
+
+        var porPreco = service.pagina("-preco", semFiltro, 1, 2);
+        assertEquals("Caro", porPreco.livros().get(0).getTitulo());
+        assertEquals(service.listar().size(), porPreco.total());
+        assertTrue(porPreco.hasNext());
+
+        // 1984, Caro, Dom Casmurro, O Senhor dos Anéis
+        assertEquals("Caro", service.pagina("titulo", semFiltro, 2, 1).livros().get(0).getTitulo());
+
+        var faixa = new CatalogoOrdenado.Filtro(500.0, null, true);
+        assertEquals(1, service.pagina("autor", faixa, 1, 10).total());
+        service.comprar("Caro", "Fulano", 1); // sem estoque: sai do filtro
+        assertEquals(0, service.pagina("autor", faixa, 1, 10).total());
+
+        assertThrows(IllegalArgumentException.class, () -> service.pagina("editora", semFiltro, 1, 10));
+    }
+
+    @Test
+    void paginaDepoisDoFim_vemVazia_semEstourarOOffset() {
+        var service = new LivroService();
+        var semFiltro = new CatalogoOrdenado.Filtro(null, null, false);
+        var emEstoque = new CatalogoOrdenado.Filtro(null, null, true);
+
+        for (var filtro : List.of(semFiltro, emEstoque)) {
+            for (int page : new int[] {4, 20_000_000, Integer.MAX_VALUE}) {
+                var r = service.pagina("titulo", filtro, page, 200);
+                assertTrue(r.livros().isEmpty(), "page=" + page);
+                assertFalse(r.hasNext(), "page=" + page);
+                assertEquals(3, r.total());
+            }
+        }
+        // a última página com itens continua inteira
+        var ultima = service.pagina("titulo", semFiltro, 2, 2);
+        assertEquals(List.of("O Senhor dos Anéis"), ultima.livros().stream().map(Livro::getTitulo).toList());
+        assertFalse(ultima.hasNext());
+    }
+
+    @Test
+    void compraAproximada_resolveErroDeDigitacao_eRecusaEmpate() {
+        var service = new LivroService();
+        assertThrows(RuntimeException.class, () -> service.comprar("1948", "Fulano", 1));
+
+        service.comprar("1948", "Fulano", 1, true);
+        service.comprar("dom  casmuro", "Fulano", 1, true);
+        var estoque = service.listar().stream().collect(java.util.stream.Collectors.toMap(Livro::getTitulo, Livro::getQuantidade));
+        assertEquals(1, estoque.get("1984"));
+        assertEquals(4, estoque.get("Dom Casmurro"));
+
+        service.criar(new Livro(0, "Dom Casmurra", "Outro", 2, 10.0));
+        service.criar(new Livro(0, "Dom Casmurros", "Outro", 2, 10.0)); // a 2 edições: não entra no empate
+        var e = assertThrows(TituloAmbiguoException.class, () -> service.comprar("Dom Casmurr", "Fulano", 1, true));
+        assertEquals(List.of("Dom Casmurra", "Dom Casmurro"), e.getCandidatos().stream().map(Livro::getTitulo).toList());
+        assertThrows(RuntimeException.class, () -> service.comprar("Crime e Castigo", "Fulano", 1, true));
+    }
+
+    @Test
+    void comprasConcorrentes_nuncaDeixamEstoqueNegativo() throws Exception {
+        var service = new LivroService();
+        Map<String, Integer> estoqueInicial = new ConcurrentHashMap<>();
+        for (Livro l : service.listar()) {
+            estoqueInicial.put(l.getTitulo(), l.getQuantidade());
+        }
+        List<String> titulos = List.copyOf(estoqueInicial.keySet());
+
+        Map<String, AtomicInteger> vendidos = new ConcurrentHashMap<>();
+        titulos.forEach(t -> vendidos.put(t, new AtomicInteger()));
+
+        int threads = 16;
+        int tentativasPorThread = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tarefas = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            final int n = t;
+            tarefas.add(pool.submit(() -> {
+                largada.await();
+                for (int i = 0; i < tentativasPorThread; i++) {
+                    String titulo = titulos.get((n + i) % titulos.size());
+                    try {
+                        service.comprar(titulo, "Cliente " + n, 1);
+                        vendidos.get(titulo).incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // só pode falhar por falta de estoque (nunca por não achar o livro)
+                        assertTrue(e.getMessage().toLowerCase().contains("estoque"), e.getMessage());
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        for (var f : tarefas) f.get(); // relança a asserção/exceção de dentro da thread
+
+        int estoqueTotal = estoqueInicial.values().stream().mapToInt(Integer::intValue).sum();
+        int vendidoTotal = vendidos.values().stream().mapToInt(AtomicInteger::get).sum();
+        assertEquals(10, estoqueTotal);
+        assertEquals(estoqueTotal, vendidoTotal, "320 tentativas disputando 10 unidades: todas vendidas");
+
+        // nenhuma venda perdida nem além do estoque: memória e disco batem com o que foi vendido
+        var recarregado = new LivroService();
+        for (Livro l : recarregado.listar()) {
+            int inicial = estoqueInicial.get(l.getTitulo());
+            int vendido = vendidos.get(l.getTitulo()).get();
+            assertTrue(l.getQuantidade() >= 0);
+            assertEquals(inicial, vendido, "todo o estoque deveria ter sido vendido: " + l.getTitulo());
+            assertEquals(0, l.getQuantidade());
+        }
+    }
 }
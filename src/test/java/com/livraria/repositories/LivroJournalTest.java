@@ -0,0 +1,117 @@
+package com.livraria.repositories;
+
+import com.livraria.TestData;
+import com.livraria.models.Livro;
+import com.livraria.shared.utils.Paths;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replay do livros.journal na subida (ver {@link CsvLivroRepository}): o repositório
+ * sem modo journal reaplica o que sobrou, consolida no livros.csv e trunca o journal.
+ */
+class LivroJournalTest {
+
+    @BeforeEach
+    void setup() throws Exception {
+        TestData.resetarLivros();
+        Files.deleteIfExists(Paths.LIVROS_JOURNAL);
+    }
+
+    @AfterEach
+    void limpar() throws Exception {
+        Files.deleteIfExists(Paths.LIVROS_JOURNAL);
+        TestData.resetarLivros();
+    }
+
+    @Test
+    void replayDepoisDeCrash_recuperaAsMutacoes_eIgnoraLinhaTruncada() throws Exception {
+        // o processo em modo journal caiu antes de compactar: só o journal tem as mutações
+        var emModoJournal = new CsvLivroRepository(true);
+        var novo = emModoJournal.inserir(new Livro(0, "Ensaio sobre a Cegueira", "José Saramago", 4, 59.0));
+        var dom = emModoJournal.buscarPorTitulo("Dom Casmurro").orElseThrow();
+        emModoJournal.atualizar(dom.withQuantidade(1));
+        emModoJournal.atualizar(new Livro(3, "1984", "George Orwell", 2, 39.90));
+        emModoJournal.excluir(1);
+        assertEquals(estado(catalogoInicial()), estado(CsvLivroRepository.lerCsv(Paths.LIVROS)), "o CSV não foi regravado");
+        // uma última linha pela metade (queda no meio da escrita)
+        Files.writeString(Paths.LIVROS_JOURNAL, "U\t2\tDom Cas", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        var reiniciado = new CsvLivroRepository(false);
+        var esperado = "2|Dom Casmurro|1|34.5;3|1984|2|39.9;" + novo.getId() + "|Ensaio sobre a Cegueira|4|59.0";
+        assertEquals(esperado, estado(reiniciado.listar()));
+        assertEquals(esperado, estado(CsvLivroRepository.lerCsv(Paths.LIVROS)), "replay consolidado no CSV");
+        assertFalse(Files.exists(Paths.LIVROS_JOURNAL));
+        assertEquals(novo.getId(), reiniciado.buscarPorTitulo("ensaio sobre a cegueira").orElseThrow().getId());
+        assertTrue(reiniciado.buscarPorTitulo("O Senhor dos Anéis").isEmpty());
+
+        emModoJournal.compactar(); // a instância "morta" não fica com pendências para a thread de fundo
+    }
+
+    @Test
+    void replayDeRegistrosRepetidos_ehIdempotente() throws Exception {
+        var journal = List.of(
+                "C\t4\tNovo\tAutor\t2\t10.0",
+                "C\t4\tNovo\tAutor\t2\t10.0",
+                "E\t2\t-1\t4",
+                "E\t2\t-1\t4",
+                "U\t3\t1984\tGeorge Orwell\t9\t49.9",
+                "U\t3\t1984\tGeorge Orwell\t9\t49.9",
+                "D\t1",
+                "D\t1");
+        Files.write(Paths.LIVROS_JOURNAL, journal, StandardCharsets.UTF_8);
+        var esperado = "2|Dom Casmurro|4|34.5;3|1984|9|49.9;4|Novo|2|10.0";
+        assertEquals(esperado, estado(new CsvLivroRepository(false).listar()));
+
+        // queda entre gravar o snapshot e truncar o journal: o mesmo journal é reaplicado
+        // sobre um CSV que já o contém, sem mudar o resultado
+        Files.write(Paths.LIVROS_JOURNAL, journal, StandardCharsets.UTF_8);
+        assertEquals(esperado, estado(new CsvLivroRepository(false).listar()));
+        assertEquals(esperado, estado(CsvLivroRepository.lerCsv(Paths.LIVROS)));
+    }
+
+    @Test
+    void mutacoesConcorrentesEmModoJournal_voltamJaNoJournal() throws Exception {
+        var repo = new CsvLivroRepository(true);
+        var pool = java.util.concurrent.Executors.newFixedThreadPool(8);
+        var futuros = new java.util.ArrayList<java.util.concurrent.Future<?>>();
+        for (int i = 0; i < 200; i++) {
+            final int n = i;
+            futuros.add(pool.submit(() -> repo.inserir(new Livro(0, "Livro " + n, "Autor", 1, 1.0))));
+        }
+        for (var f : futuros) f.get();
+        pool.shutdown();
+
+        // cada inserir só voltou depois do fsync do seu registro
+        var journal = new LivroJournal(Paths.LIVROS_JOURNAL);
+        assertEquals(200, journal.ler().size());
+        assertEquals(203, new CsvLivroRepository(false).listar().size());
+
+        // truncado pela compactação: um sincronizar atrasado não tem mais o que esperar
+        long posicao = journal.anexarExclusao(1);
+        journal.truncar();
+        journal.sincronizar(posicao);
+        repo.compactar();
+    }
+
+    private static List<Livro> catalogoInicial() {
+        return List.of(new Livro(1, "O Senhor dos Anéis", "J.R.R. Tolkien", 3, 89.90),
+                new Livro(2, "Dom Casmurro", "Machado de Assis", 5, 34.50),
+                new Livro(3, "1984", "George Orwell", 2, 49.90));
+    }
+
+    private static String estado(List<Livro> livros) {
+        return livros.stream()
+                .map(l -> l.getId() + "|" + l.getTitulo() + "|" + l.getQuantidade() + "|" + l.getPreco())
+                .collect(Collectors.joining(";"));
+    }
+}
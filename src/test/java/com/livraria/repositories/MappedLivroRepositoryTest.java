@@ -0,0 +1,170 @@
+package com.livraria.repositories;
+
+import com.livraria.models.Livro;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLivroRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    private MappedLivroRepository abrir() {
+        return new MappedLivroRepository(dir.resolve("livros.dat"), dir.resolve("livros.heap"), dir.resolve("livros.csv"));
+    }
+
+    @Test
+    void primeiraSubida_importaCsv_eIdaEVoltaDosCampos() throws Exception {
+        Files.write(dir.resolve("livros.csv"), List.of(
+                "id,titulo,autor,quantidade,preco",
+                "1,O Senhor dos Anéis,J.R.R. Tolkien,3,89.90",
+                "2,Dom Casmurro,Machado de Assis,5,34.50"), StandardCharsets.UTF_8);
+        var repo = abrir();
+
+        assertEquals(2, repo.listar().size());
+        var l = repo.buscarPorTitulo("o senhor dos anéis").orElseThrow();
+        assertEquals(1, l.getId());
+        assertEquals("J.R.R. Tolkien", l.getAutor());
+        assertEquals(3, l.getQuantidade());
+        assertEquals(89.90, l.getPreco());
+
+        var novo = repo.inserir(new Livro(0, "Ensaio sobre a Cegueira", "José Saramago", 7, 59.0));
+        assertEquals(3, novo.getId());
+        assertEquals(novo.getTitulo(), repo.buscarPorId(3).orElseThrow().getTitulo());
+
+        assertTrue(repo.atualizar(novo.withQuantidade(6)));
+        assertEquals(6, repo.buscarPorId(3).orElseThrow().getQuantidade());
+        assertFalse(repo.atualizar(new Livro(99, "x", "y", 1, 1)));
+    }
+
+    @Test
+    void renomear_gravaTextoNovoNoHeap_eIndiceSegueOTitulo() throws Exception {
+        var repo = abrir();
+        var l = repo.inserir(new Livro(0, "Titulo Velho", "Autor", 1, 10.0));
+        long heapAntes = Files.size(dir.resolve("livros.heap"));
+        String topoAntes = textoDoHeap();
+
+        // só estoque: nada anexado no heap
+        repo.atualizar(l.withQuantidade(4));
+        assertEquals(topoAntes, textoDoHeap());
+
+        repo.atualizar(new Livro(l.getId(), "Titulo Novo", "Outro Autor", 4, 12.0));
+        assertTrue(textoDoHeap().length() > topoAntes.length(), "o texto novo vai para o fim do heap");
+        assertEquals(heapAntes, Files.size(dir.resolve("livros.heap"))); // cabe no mapeamento inicial
+
+        assertTrue(repo.buscarPorTitulo("titulo velho").isEmpty());
+        var renomeado = repo.buscarPorTituloAutor("TITULO NOVO", "outro autor").orElseThrow();
+        assertEquals(l.getId(), renomeado.getId());
+        assertEquals(4, renomeado.getQuantidade());
+        assertEquals(12.0, renomeado.getPreco());
+    }
+
+    @Test
+    void reabrir_releOArquivo_eReconstroiOIndice() {
+        var repo = abrir();
+        var a = repo.inserir(new Livro(0, "Primeiro", "A", 1, 1.0));
+        var b = repo.inserir(new Livro(0, "Segundo", "B", 2, 2.0));
+        repo.atualizar(new Livro(b.getId(), "Segundo Renomeado", "B", 0, 2.5));
+        repo.excluir(a.getId());
+
+        var reaberto = abrir();
+        assertEquals(List.of(b.getId()), reaberto.listar().stream().map(Livro::getId).toList());
+        var l = reaberto.buscarPorTitulo("segundo renomeado").orElseThrow();
+        assertEquals(0, l.getQuantidade());
+        assertEquals(2.5, l.getPreco());
+        assertTrue(reaberto.buscarPorTitulo("primeiro").isEmpty());
+        // o próximo id continua depois do maior ocupado
+        assertEquals(b.getId() + 1, reaberto.inserir(new Livro(0, "Terceiro", "C", 1, 1.0)).getId());
+    }
+
+    @Test
+    void leituraOtimista_duranteRegravacaoDoHeap_nuncaFalha() throws Exception {
+        var repo = abrir();
+        var livros = new java.util.ArrayList<Livro>();
+        for (int i = 1; i <= 50; i++) livros.add(new Livro(i, "Livro " + i + " " + "x".repeat(i), "Autor " + i, i, i));
+        repo.salvarTodos(livros);
+
+        var parar = new AtomicBoolean();
+        var erro = new AtomicReference<Throwable>();
+        var leitor = new Thread(() -> {
+            try {
+                while (!parar.get()) {
+                    for (int id = 1; id <= 50; id++) {
+                        var l = repo.buscarPorId(id).orElseThrow();
+                        if (!l.getTitulo().startsWith("Livro " + id + " ")) throw new AssertionError(l.getTitulo());
+                        // o índice é trocado inteiro: a busca por título não erra no meio da regravação
+                        repo.buscarPorTitulo(l.getTitulo()).orElseThrow();
+                    }
+                }
+            } catch (Throwable t) {
+                erro.set(t);
+            }
+        });
+        leitor.start();
+        // salvarTodos grava arquivos novos e troca os mapeamentos
+        for (int k = 0; k < 200; k++) repo.salvarTodos(livros);
+        parar.set(true);
+        leitor.join();
+        assertNull(erro.get());
+    }
+
+    @Test
+    void quedaNoMeioDaImportacao_naoDeixaCatalogoVazio() throws Exception {
+        Files.write(dir.resolve("livros.csv"), List.of(
+                "id,titulo,autor,quantidade,preco",
+                "1,O Senhor dos Anéis,J.R.R. Tolkien,3,89.90",
+                "2,Dom Casmurro,Machado de Assis,5,34.50"), StandardCharsets.UTF_8);
+        // o processo caiu gravando os temporários: o .dat.tmp ainda não tem o MAGIC
+        Files.write(dir.resolve("livros.dat.tmp"), new byte[64]);
+        Files.write(dir.resolve("livros.heap.tmp"), "lixo".getBytes(StandardCharsets.UTF_8));
+
+        var repo = abrir();
+        assertEquals(List.of("O Senhor dos Anéis", "Dom Casmurro"), titulos(repo));
+        assertFalse(Files.exists(dir.resolve("livros.dat.tmp")));
+        assertFalse(Files.exists(dir.resolve("livros.heap.tmp")));
+    }
+
+    @Test
+    void quedaDepoisDeGravarOsTemporarios_concluiATrocaNaSubida() throws Exception {
+        var repo = abrir();
+        repo.inserir(new Livro(0, "Antigo", "A", 1, 1.0));
+
+        // temporários completos de outro catálogo, como se o salvarTodos tivesse caído antes dos renames
+        Path outro = Files.createDirectories(dir.resolve("outro"));
+        new MappedLivroRepository(outro.resolve("livros.dat"), outro.resolve("livros.heap"), outro.resolve("livros.csv"))
+                .salvarTodos(List.of(new Livro(1, "Novo", "N", 2, 2.0), new Livro(2, "Mais Novo", "N", 3, 3.0)));
+        Files.copy(outro.resolve("livros.dat"), dir.resolve("livros.dat.tmp"));
+        Files.copy(outro.resolve("livros.heap"), dir.resolve("livros.heap.tmp"));
+        assertEquals(List.of("Novo", "Mais Novo"), titulos(abrir()));
+
+        // caiu entre os dois renames: o heap novo já está no lugar, falta o .dat
+        repo = abrir();
+        repo.salvarTodos(List.of(new Livro(1, "Antigo", "A", 1, 1.0)));
+        Files.copy(outro.resolve("livros.dat"), dir.resolve("livros.dat.tmp"));
+        Files.copy(outro.resolve("livros.heap"), dir.resolve("livros.heap"), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        var reaberto = abrir();
+        assertEquals(List.of("Novo", "Mais Novo"), titulos(reaberto));
+        assertEquals(3, reaberto.buscarPorTitulo("mais novo").orElseThrow().getQuantidade());
+    }
+
+    private static List<String> titulos(MappedLivroRepository repo) {
+        return repo.listar().stream().map(Livro::getTitulo).toList();
+    }
+
+    /** Conteúdo útil do heap (até o primeiro byte zero do fim ainda não usado). */
+    private String textoDoHeap() throws Exception {
+        byte[] b = Files.readAllBytes(dir.resolve("livros.heap"));
+        int fim = b.length;
+        while (fim > 0 && b[fim - 1] == 0) fim--;
+        return new String(b, 0, fim, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,97 @@
+package com.livraria.services.relatorio;
+
+import com.livraria.utils.LogDeTeste;
+import com.livraria.utils.LogSegmentos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Paginação por cursor do relatório: o cursor continua apontando para o mesmo
+ * evento quando o log cresce, rotaciona ou o store sobe de novo; cursor forjado
+ * ou fora do log é recusado (o controller devolve 400).
+ */
+class CursorTest {
+
+    @TempDir
+    Path dir;
+
+    private static final EventoStore.Filtro TUDO = new EventoStore.Filtro("", "", "", null, null);
+
+    private static final List<String> INICIO = List.of(
+            "2025-03-01T09:00:00 - COMPRA|cliente=Ana|livro=1984|qtd=1|preco=10,00",
+            "2025-03-01T10:00:00 - COMPRA|cliente=Bia|livro=1984|qtd=2|preco=10,00",
+            "2025-03-01T11:00:00 - COMPRA|cliente=Caio|livro=1984|qtd=3|preco=10,00",
+            "2025-03-02T09:00:00 - COMPRA|cliente=Davi|livro=1984|qtd=4|preco=10,00",
+            "2025-03-02T10:00:00 - COMPRA|cliente=Eva|livro=1984|qtd=5|preco=10,00");
+    private static final List<String> DEPOIS = List.of(
+            "2025-03-03T09:00:00 - COMPRA|cliente=Fabi|livro=1984|qtd=6|preco=10,00",
+            "2025-03-03T10:00:00 - COMPRA|cliente=Gil|livro=1984|qtd=7|preco=10,00");
+
+    @Test
+    void cursor_seguePontoDoLog_entreAnexos_rotacao_eReinicio() throws Exception {
+        var log = new LogDeTeste(dir);
+        log.anexar(INICIO);
+        LogSegmentos segmentos = log.abrir();
+        var store = subir(segmentos);
+
+        var primeira = store.consultar(TUDO, 1, 2, null);
+        assertEquals(List.of("Ana", "Bia"), clientes(primeira));
+        assertTrue(primeira.hasNext());
+        String cursor = primeira.proximoCursor();
+        var esperado = List.of("Caio", "Davi");
+        assertEquals(esperado, clientes(store.consultar(TUDO, 1, 2, cursor)));
+
+        // linhas novas no fim não mexem no que o cursor aponta
+        log.anexar(DEPOIS);
+        store.sincronizar();
+        assertEquals(esperado, clientes(store.consultar(TUDO, 1, 2, cursor)));
+        // e a página seguinte já enxerga os anexos
+        var segunda = store.consultar(TUDO, 1, 2, cursor);
+        assertEquals(List.of("Eva", "Fabi"), clientes(store.consultar(TUDO, 1, 2, segunda.proximoCursor())));
+
+        // o ativo vira segmentos gzip: mesmo offset lógico, no mesmo store e numa subida nova
+        LogDeTeste.rotacionar(segmentos);
+        store.sincronizar();
+        assertEquals(esperado, clientes(store.consultar(TUDO, 1, 2, cursor)));
+        assertEquals(esperado, clientes(subir(log.abrir()).consultar(TUDO, 1, 2, cursor)));
+    }
+
+    @Test
+    void cursorForjadoOuForaDoLog_ehRecusado() throws Exception {
+        var log = new LogDeTeste(dir);
+        log.anexar(INICIO);
+        var store = subir(log.abrir());
+        String valido = store.consultar(TUDO, 1, 2, null).proximoCursor();
+        long fim = INICIO.stream().mapToLong(l -> l.getBytes(StandardCharsets.UTF_8).length + 1).sum();
+
+        for (String forjado : List.of("lixo!!", codificar("x:1"), codificar("o:abc"), codificar("o:-1"),
+                codificar("o:1"), codificar("o:" + fim), codificar("o:999999999"), valido + "A")) {
+            var e = assertThrows(IllegalArgumentException.class,
+                    () -> store.consultar(TUDO, 1, 2, forjado), forjado);
+            assertEquals("Cursor inválido", e.getMessage());
+        }
+        // o início do log é um offset de evento válido
+        assertEquals(List.of("Ana", "Bia"), clientes(store.consultar(TUDO, 1, 2, codificar("o:0"))));
+    }
+
+    private EventoStore subir(LogSegmentos segmentos) throws Exception {
+        var store = new EventoStore(segmentos, new RollupsDiarios(dir.resolve("rollups.csv")));
+        store.sincronizar();
+        return store;
+    }
+
+    private static List<String> clientes(EventoStore.Resultado r) {
+        return r.pagina().stream().map(Evento::cliente).toList();
+    }
+
+    private static String codificar(String s) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.US_ASCII));
+    }
+}
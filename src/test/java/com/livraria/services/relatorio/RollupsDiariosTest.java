@@ -0,0 +1,90 @@
+package com.livraria.services.relatorio;
+
+import com.livraria.shared.utils.DurableWriter;
+import com.livraria.utils.LogDeTeste;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Totais do relatório servidos pelos agregados diários, conferidos contra uma
+ * soma linha a linha do log, entre subidas do store.
+ */
+class RollupsDiariosTest {
+
+    @TempDir
+    Path dir;
+
+    private static final List<String> DIA1 = List.of(
+            "2025-03-01T09:00:00 - COMPRA|cliente=Ana|livro=1984|qtd=2|antes=5|depois=3|preco=10,00",
+            "2025-03-01T10:00:00 - CRIACAO|id=4|livro=Novo|autor=X|qtd=1|preco=5.00",
+            "2025-03-01T11:00:00 - COMPRA|cliente=Bia|livro=Novo|qtd=1|antes=1|depois=0|preco=5,50");
+    private static final List<String> DIA2 = List.of(
+            "2025-03-02T09:00:00 - COMPRA|cliente=Ana|livro=1984|qtd=3|antes=3|depois=0|preco=10,00",
+            "2025-03-02T12:00:00 - EXCLUSAO|id=4|livro=Novo");
+
+    private Path rollups;
+
+    @Test
+    void totais_batemComAVarredura_depoisDeReiniciar_eDeTruncarOLog() throws Exception {
+        var log = new LogDeTeste(dir);
+        rollups = dir.resolve("rollups.csv");
+        var linhas = new ArrayList<>(DIA1);
+
+        log.anexar(DIA1);
+        conferir(subir(log), linhas);
+
+        // reinício com linhas novas: o que está abaixo da marca não é somado de novo
+        log.anexar(DIA2);
+        linhas.addAll(DIA2);
+        conferir(subir(log), linhas);
+        assertTrue(Files.readAllLines(rollups, StandardCharsets.UTF_8).get(0).startsWith("#marca,5,"));
+
+        // reinício sem linhas novas
+        conferir(subir(log), linhas);
+
+        // log truncado por fora (menos eventos que a marca): os agregados são refeitos
+        Files.write(log.ativo(), DIA1.subList(0, 2), StandardCharsets.UTF_8);
+        conferir(subir(log), DIA1.subList(0, 2));
+
+        // log trocado com a mesma quantidade de eventos mas outro último evento
+        var trocado = List.of(DIA1.get(0), "2025-03-09T09:00:00 - COMPRA|cliente=Caio|livro=1984|qtd=7|preco=1,00");
+        Files.write(log.ativo(), trocado, StandardCharsets.UTF_8);
+        conferir(subir(log), trocado);
+    }
+
+    private EventoStore subir(LogDeTeste log) throws Exception {
+        var r = new RollupsDiarios(rollups);
+        var store = new EventoStore(log.abrir(), r);
+        store.sincronizar();
+        DurableWriter.instancia().gravar(r.arquivo(), r::linhas); // o que o sincronizar agenda em segundo plano
+        return store;
+    }
+
+    /** Totais sem filtro de texto (vêm dos rollups) contra a soma linha a linha. */
+    private static void conferir(EventoStore store, List<String> linhas) {
+        var eventos = linhas.stream().map(EventoParser::interpretar).toList();
+        LocalDate d1 = LocalDate.of(2025, 3, 1), d2 = LocalDate.of(2025, 3, 2);
+        for (String tipo : List.of("", "COMPRA")) {
+            for (LocalDate[] p : new LocalDate[][] {{null, null}, {d1, d1}, {d2, null}}) {
+                var f = new EventoStore.Filtro(tipo, "", "", p[0], p[1]);
+                var t = store.consultar(f, 1, 1).totais();
+                var esperado = eventos.stream().filter(f::aceita).toList();
+                String ctx = "tipo=" + tipo + " de=" + p[0] + " ate=" + p[1];
+                assertEquals(esperado.size(), t.eventos(), ctx);
+                assertEquals(esperado.stream().filter(e -> e.tipo().equals("COMPRA")).mapToLong(Evento::quantidade).sum(),
+                        t.itens(), ctx);
+                assertEquals(esperado.stream().mapToDouble(e -> e.tipo().equals("COMPRA") ? e.receita() : 0).sum(),
+                        t.receita(), 1e-9, ctx);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.livraria.shared.storage;
+
+import com.livraria.models.Cliente;
+import com.livraria.models.Livro;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Backend jdbc de ponta a ponta. O {@code Paths} é fixado na carga da classe, então cada
+ * subida roda numa JVM à parte com -Dlivraria.storage=jdbc e -Dlivraria.data.dir temporário.
+ */
+class JdbcStorageProviderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void importaOsCsvsUmaVezSo_eOBancoSobreviveAoReinicio() throws Exception {
+        Files.write(dir.resolve("livros.csv"), List.of(
+                "id,titulo,autor,quantidade,preco",
+                "1,O Senhor dos Anéis,J.R.R. Tolkien,3,89.90",
+                "2,Dom Casmurro,Machado de Assis,5,34.50"), StandardCharsets.UTF_8);
+        Files.write(dir.resolve("clientes.csv"), List.of(
+                "id,nome,email",
+                "1,Fulano da Silva,fulano@email.com"), StandardCharsets.UTF_8);
+        Files.write(dir.resolve("tickets.csv"), List.of(
+                "id;titulo;descricao;emailCliente;prioridade;status",
+                "1;Ticket;Descrição;cliente@example.com;ALTA;ABERTO"), StandardCharsets.UTF_8);
+
+        assertEquals("jdbc|O Senhor dos Anéis,Dom Casmurro|Fulano da Silva|1", subir("listar"));
+
+        // tudo apagado pela API: os CSVs (que o jdbc não atualiza) não voltam na subida seguinte
+        assertEquals("jdbc|||0", subir("apagar"));
+        assertEquals("jdbc|||0", subir("listar"));
+
+        assertEquals("jdbc|Ensaio sobre a Cegueira|Ciclano|0", subir("inserir"));
+        assertEquals("jdbc|Ensaio sobre a Cegueira|Ciclano|0", subir("listar"));
+    }
+
+    /** Roda {@link Subida} numa JVM nova sobre a pasta temporária e devolve o que ela imprimiu. */
+    private String subir(String acao) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var cmd = List.of(java, "-cp", System.getProperty("java.class.path"),
+                "-Dlivraria.storage=jdbc", "-Dlivraria.data.dir=" + dir.toAbsolutePath(),
+                Subida.class.getName(), acao);
+        var processo = new ProcessBuilder(cmd).directory(dir.toFile()).redirectErrorStream(true).start();
+        String saida = new String(processo.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(processo.waitFor(60, TimeUnit.SECONDS), "subida travou");
+        assertEquals(0, processo.exitValue(), saida);
+        var linhas = saida.lines().filter(l -> l.startsWith("jdbc|") || l.startsWith("csv|")).toList();
+        assertEquals(1, linhas.size(), saida);
+        return linhas.get(0);
+    }
+
+    /** Uma subida do processo: escolhe o provedor pelo SPI, aplica a ação e imprime o estado. */
+    public static final class Subida {
+        public static void main(String[] args) {
+            StorageProvider p = Storage.provider();
+            var livros = p.livros();
+            var clientes = p.clientes();
+            var tickets = p.tickets();
+            switch (args[0]) {
+                case "apagar" -> {
+                    for (var l : livros.listar()) livros.excluir(l.getId());
+                    for (var c : clientes.listar()) clientes.excluir(c.getId());
+                    for (var t : tickets.listar()) tickets.excluir(t.getId());
+                }
+                case "inserir" -> {
+                    livros.inserir(new Livro(0, "Ensaio sobre a Cegueira", "José Saramago", 4, 59.0));
+                    clientes.inserir(new Cliente(0, "Ciclano", "ciclano@email.com"));
+                }
+                default -> { }
+            }
+            var estado = new ArrayList<String>();
+            estado.add(p.nome());
+            estado.add(livros.listar().stream().map(Livro::getTitulo).collect(Collectors.joining(",")));
+            estado.add(clientes.listar().stream().map(Cliente::getNome).collect(Collectors.joining(",")));
+            estado.add(String.valueOf(tickets.listar().size()));
+            System.out.println(String.join("|", estado));
+            System.exit(0);
+        }
+    }
+}
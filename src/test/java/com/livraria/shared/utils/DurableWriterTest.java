@@ -0,0 +1,62 @@
+package com.livraria.shared.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private final DurableWriter writer = DurableWriter.instancia();
+
+    @Test
+    void gravar_substituiOArquivoInteiro_semSobrarTemporario() throws Exception {
+        Path destino = dir.resolve("sub").resolve("dados.csv"); // a pasta nasce na gravação
+        writer.gravar(destino, List.of("a", "b", "c"));
+        writer.gravar(destino, List.of("x"));
+
+        assertEquals(List.of("x"), Files.readAllLines(destino, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(destino.resolveSibling("dados.csv.tmp")));
+    }
+
+    @Test
+    void gravacoesNaMesmaJanela_viramUmaSo_eValeAMaisRecente() throws Exception {
+        Path destino = dir.resolve("agrupado.csv");
+        var avaliacoes = new AtomicInteger();
+        var futuros = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 100; i++) {
+            final int n = i;
+            futuros.add(writer.agendar(destino, () -> {
+                avaliacoes.incrementAndGet();
+                return List.of("versao," + n);
+            }));
+        }
+        CompletableFuture.allOf(futuros.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(List.of("versao,99"), Files.readAllLines(destino, StandardCharsets.UTF_8));
+        assertTrue(avaliacoes.get() < 100, "pedidos da mesma janela não geram uma escrita cada: " + avaliacoes.get());
+    }
+
+    @Test
+    void falhaNumArquivo_naoDerrubaOGravador() throws Exception {
+        Path arquivoNoCaminho = dir.resolve("nao-e-pasta");
+        Files.writeString(arquivoNoCaminho, "x");
+
+        assertThrows(RuntimeException.class, () -> writer.gravar(arquivoNoCaminho.resolve("dados.csv"), List.of("a")));
+
+        Path ok = dir.resolve("ok.csv");
+        writer.gravar(ok, List.of("depois da falha"));
+        assertEquals(List.of("depois da falha"), Files.readAllLines(ok, StandardCharsets.UTF_8));
+    }
+}
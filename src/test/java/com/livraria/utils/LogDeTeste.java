@@ -0,0 +1,38 @@
+package com.livraria.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Log de ações isolado numa pasta temporária, para os testes do relatório
+ * (o {@link LogSegmentos#instancia()} aponta para o data/ de verdade).
+ */
+public final class LogDeTeste {
+
+    private final Path dir;
+
+    public LogDeTeste(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path ativo() {
+        return dir.resolve("log_acoes.txt");
+    }
+
+    /** Segmentos sobre a pasta; cada chamada é como uma subida nova do processo. */
+    public LogSegmentos abrir() {
+        return new LogSegmentos(ativo(), dir.resolve("log"), dir.resolve("log").resolve("segmentos.csv"));
+    }
+
+    public void anexar(List<String> linhas) throws IOException {
+        Files.write(ativo(), linhas, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public static void rotacionar(LogSegmentos s) throws IOException {
+        s.rotacionar();
+    }
+}
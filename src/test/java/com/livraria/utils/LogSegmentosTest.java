@@ -0,0 +1,98 @@
+package com.livraria.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSegmentosTest {
+
+    @TempDir
+    Path dir;
+
+    private static final LocalDate DIA1 = LocalDate.of(2025, 3, 1);
+    private static final LocalDate DIA2 = LocalDate.of(2025, 3, 2);
+
+    private LogSegmentos abrir() {
+        return new LogSegmentos(dir.resolve("log_acoes.txt"), dir.resolve("log"), dir.resolve("log").resolve("segmentos.csv"));
+    }
+
+    private void anexar(List<String> linhas) throws Exception {
+        Files.write(dir.resolve("log_acoes.txt"), linhas, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static List<String> ler(LogSegmentos s, LocalDate de, LocalDate ate) throws Exception {
+        try (var linhas = s.linhas(de, ate)) {
+            return linhas.toList();
+        }
+    }
+
+    @Test
+    void rotacionar_quebraPorDia_eLeituraSegueAOrdemEntreSegmentos() throws Exception {
+        var primeiro = List.of(
+                "2025-03-01T09:00:00 - COMPRA|cliente=A|livro=1984|qtd=1",
+                "linha solta sem timestamp",
+                "2025-03-01T23:59:59 - COMPRA|cliente=B|livro=1984|qtd=2",
+                "2025-03-02T00:00:01 - CRIACAO|id=4|livro=Novo",
+                "2025-03-03T08:00:00 - EXCLUSAO|id=4|livro=Novo");
+        anexar(primeiro);
+        var s = abrir();
+        s.rotacionar();
+
+        assertFalse(Files.exists(dir.resolve("log_acoes.txt")));
+        var segs = s.listar();
+        assertEquals(List.of("log_acoes-2025-03-01.txt.gz", "log_acoes-2025-03-02.txt.gz", "log_acoes-2025-03-03.txt.gz"),
+                segs.stream().map(LogSegmentos.Segmento::arquivo).toList());
+        assertEquals(3, segs.get(0).linhas()); // a linha sem data vai junto com a anterior
+        assertEquals(DIA1, segs.get(0).ultimo().toLocalDate());
+
+        // o mesmo dia rotacionado de novo ganha outro arquivo; a ordem cronológica se mantém
+        var segundo = List.of(
+                "2025-03-03T18:00:00 - COMPRA|cliente=C|livro=1984|qtd=1",
+                "2025-03-04T10:00:00 - COMPRA|cliente=D|livro=1984|qtd=1");
+        anexar(segundo);
+        s.rotacionar();
+        var ativo = List.of("2025-03-05T10:00:00 - COMPRA|cliente=E|livro=1984|qtd=1");
+        anexar(ativo);
+
+        var tudo = new ArrayList<String>();
+        tudo.addAll(primeiro);
+        tudo.addAll(segundo);
+        tudo.addAll(ativo);
+        assertEquals(tudo, ler(s, null, null));
+        assertTrue(s.listar().stream().anyMatch(g -> g.arquivo().equals("log_acoes-2025-03-03-2.txt.gz")));
+
+        // por período: só os segmentos do dia (o ativo começa depois)
+        assertEquals(List.of(primeiro.get(3)), ler(s, DIA2, DIA2));
+
+        // reabrir relê o catálogo; sem o catálogo, ele é refeito a partir dos gzips
+        assertEquals(tudo, ler(abrir(), null, null));
+        Files.delete(dir.resolve("log").resolve("segmentos.csv"));
+        var refeito = abrir();
+        assertEquals(s.listar().size(), refeito.listar().size());
+        assertEquals(tudo, ler(refeito, null, null));
+    }
+
+    @Test
+    void quedaNoMeioDaRotacao_eConcluidaNaSubida() throws Exception {
+        var linhas = List.of(
+                "2025-03-01T09:00:00 - COMPRA|cliente=A|livro=1984|qtd=1",
+                "2025-03-02T09:00:00 - COMPRA|cliente=B|livro=1984|qtd=1");
+        // o ativo já tinha sido renomeado quando o processo caiu
+        Files.write(dir.resolve("log_acoes.txt.rotacionando"), linhas, StandardCharsets.UTF_8);
+
+        var s = abrir();
+        assertFalse(Files.exists(dir.resolve("log_acoes.txt.rotacionando")));
+        assertEquals(2, s.listar().size());
+        assertEquals(linhas, ler(s, null, null));
+    }
+}